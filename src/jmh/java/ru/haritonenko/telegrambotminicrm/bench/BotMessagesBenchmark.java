@@ -0,0 +1,59 @@
+package ru.haritonenko.telegrambotminicrm.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.haritonenko.telegrambotminicrm.consumer.BotMessages;
+import ru.haritonenko.telegrambotminicrm.model.Lead;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BotMessagesBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private List<Lead> leads;
+
+    @Setup
+    public void setUp() {
+        leads = new ArrayList<>(pageSize);
+        OffsetDateTime created = OffsetDateTime.of(2025, 1, 15, 10, 30, 0, 0, ZoneOffset.UTC);
+        for (int i = 0; i < pageSize; i++) {
+            leads.add(Lead.builder()
+                    .id(1000L + i)
+                    .fio("Иванов Иван Иванович " + i)
+                    .phone("+7999123" + String.format("%04d", i))
+                    .district("Центральный")
+                    .source("landing")
+                    .quantity(i % 7)
+                    .amount(new BigDecimal("1500.50"))
+                    .createdAt(created.plusMinutes(i))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public String leadsPage() {
+        return BotMessages.leadsPage(leads, 3);
+    }
+
+    @Benchmark
+    public Object paginationKeyboard() {
+        return BotMessages.paginationKeyboard("leads_page", 3, 1000L, 1000L + pageSize, true, true);
+    }
+
+    @Benchmark
+    public Object mainMenu() {
+        return BotMessages.mainMenu(123456789L);
+    }
+}
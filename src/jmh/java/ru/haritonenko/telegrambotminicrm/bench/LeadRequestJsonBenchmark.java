@@ -0,0 +1,41 @@
+package ru.haritonenko.telegrambotminicrm.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+import ru.haritonenko.telegrambotminicrm.dto.LeadRequest;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LeadRequestJsonBenchmark {
+
+    private static final String JSON = """
+            {"fio":"Иванов Иван Иванович","phone":"+7 (999) 123-45-67","district":"Центральный",
+             "source":"landing","quantity":3,"amount":1500.50}
+            """;
+
+    private ObjectMapper mapper;
+    private ObjectReader reader;
+
+    @Setup
+    public void setUp() {
+        mapper = new ObjectMapper();
+        reader = mapper.readerFor(LeadRequest.class);
+    }
+
+    @Benchmark
+    public LeadRequest objectMapper() throws Exception {
+        return mapper.readValue(JSON, LeadRequest.class);
+    }
+
+    @Benchmark
+    public LeadRequest objectReader() throws Exception {
+        return reader.readValue(JSON);
+    }
+}
@@ -0,0 +1,39 @@
+package ru.haritonenko.telegrambotminicrm.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.haritonenko.telegrambotminicrm.service.UserService;
+import ru.haritonenko.telegrambotminicrm.util.PhoneNormalizer;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PhoneNormalizeBenchmark {
+
+    private final String[] phones = {
+            "+7 (999) 123-45-67",
+            "8 999 123 45 67",
+            "9991234567",
+            "+1-202-555-0143",
+            "тел. 8(912)000-11-22 доб."
+    };
+
+    @Benchmark
+    public void normalizePhone(Blackhole bh) {
+        for (String phone : phones) {
+            bh.consume(UserService.normalizePhone(phone));
+        }
+    }
+
+    @Benchmark
+    public void normalize(Blackhole bh) {
+        for (String phone : phones) {
+            bh.consume(PhoneNormalizer.normalize(phone));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.haritonenko.telegrambotminicrm.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    /**
+     * An AOT-processed build keeps Flyway configured whatever spring.flyway.enabled says at run time,
+     * so the flag is checked here too; the AppCDS training run relies on it to refresh without a database.
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${spring.flyway.enabled:true}") boolean enabled) {
+        return flyway -> {
+            if (enabled) flyway.migrate();
+        };
+    }
+}
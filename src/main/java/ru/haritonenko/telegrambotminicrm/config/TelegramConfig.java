@@ -1,16 +1,48 @@
 package ru.haritonenko.telegrambotminicrm.config;
 
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
+import org.telegram.telegrambots.meta.TelegramUrl;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class TelegramConfig {
 
     @Bean
-    public TelegramClient telegramClient(@Value("${bot.token}") String token) {
-        return new OkHttpTelegramClient(token);
+    public OkHttpClient telegramHttpClient(@Value("${bot.http.max-requests:64}") int maxRequests,
+                                           @Value("${bot.http.max-idle-connections:16}") int maxIdleConnections,
+                                           @Value("${bot.http.keep-alive:5m}") Duration keepAlive) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .build();
+    }
+
+    @Bean
+    public TelegramClient telegramClient(OkHttpClient telegramHttpClient,
+                                         @Value("${bot.token}") String token,
+                                         @Value("${bot.api-url:}") String apiUrl) {
+        if (apiUrl == null || apiUrl.isBlank()) {
+            return new OkHttpTelegramClient(telegramHttpClient, token);
+        }
+        URI uri = URI.create(apiUrl);
+        int port = uri.getPort() != -1 ? uri.getPort() : ("https".equals(uri.getScheme()) ? 443 : 80);
+        return new OkHttpTelegramClient(telegramHttpClient, token, TelegramUrl.builder()
+                .schema(uri.getScheme())
+                .host(uri.getHost())
+                .port(port)
+                .build());
     }
-}
\ No newline at end of file
+}
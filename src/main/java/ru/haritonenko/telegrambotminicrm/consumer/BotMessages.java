@@ -0,0 +1,181 @@
+package ru.haritonenko.telegrambotminicrm.consumer;
+
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
+import ru.haritonenko.telegrambotminicrm.dto.LeadStatsResponse;
+import ru.haritonenko.telegrambotminicrm.dto.LeadStatsRow;
+import ru.haritonenko.telegrambotminicrm.model.Lead;
+import ru.haritonenko.telegrambotminicrm.model.SubscriptionFilter;
+import ru.haritonenko.telegrambotminicrm.model.SubscriptionFilterKind;
+import ru.haritonenko.telegrambotminicrm.model.User;
+import ru.haritonenko.telegrambotminicrm.service.UserService;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text and markup of the bot's replies, kept free of I/O so it can be benchmarked in isolation.
+ */
+public final class BotMessages {
+
+    private static final DateTimeFormatter LEAD_DT_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private BotMessages() {
+    }
+
+    public static String userShort(User u) {
+        String uname = u.getUsername() != null ? ("@" + u.getUsername()) : "-";
+        String phone = u.getPhone() != null ? UserService.normalizePhone(u.getPhone()) : "-";
+        return "%d | chatId=%d | %s | %s | notify=%s"
+                .formatted(u.getId(), u.getChatId(), uname, phone, u.getNotify());
+    }
+
+    public static String leadsPage(List<Lead> leads, int pageNumber) {
+        return leadsPage("Последние заявки", leads, pageNumber);
+    }
+
+    public static String leadsPage(String title, List<Lead> leads, int pageNumber) {
+        StringBuilder sb = new StringBuilder(title).append(" (страница ")
+                .append(pageNumber + 1)
+                .append("):\n\n");
+
+        for (Lead l : leads) {
+            String created = l.getCreatedAt() != null ? l.getCreatedAt().format(LEAD_DT_FMT) : "-";
+            sb.append("#").append(l.getId())
+                    .append(" | ").append(l.getFio())
+                    .append(" | ").append(l.getPhone())
+                    .append(" | ").append(l.getDistrict())
+                    .append(" | ").append(l.getSource())
+                    .append(" | кол-во=").append(l.getQuantity())
+                    .append(" | сумма=").append(l.getAmount())
+                    .append(" | ").append(created)
+                    .append("\n\n");
+        }
+
+        return sb.toString();
+    }
+
+    public static String stats(LeadStatsResponse stats, int maxRows) {
+        StringBuilder sb = new StringBuilder("Статистика заявок ")
+                .append(stats.from()).append(" — ").append(stats.to()).append("\n")
+                .append("Всего: ").append(statsLine(stats.total())).append("\n");
+        appendStatsSection(sb, "По районам", stats.byDistrict(), maxRows);
+        appendStatsSection(sb, "По источникам", stats.bySource(), maxRows);
+        appendStatsSection(sb, "По дням", stats.byDay(), maxRows);
+        return sb.toString();
+    }
+
+    public static String filters(List<SubscriptionFilter> filters) {
+        if (filters.isEmpty()) {
+            return "Фильтров нет — вы получаете все заявки.";
+        }
+        StringBuilder sb = new StringBuilder("Ваши фильтры рассылки:\n");
+        appendFilters(sb, "Районы", filters, SubscriptionFilterKind.DISTRICT);
+        appendFilters(sb, "Источники", filters, SubscriptionFilterKind.SOURCE);
+        return sb.toString();
+    }
+
+    private static void appendFilters(StringBuilder sb, String title, List<SubscriptionFilter> filters,
+                                      SubscriptionFilterKind kind) {
+        List<String> values = filters.stream()
+                .filter(f -> f.kind() == kind)
+                .map(SubscriptionFilter::value)
+                .toList();
+        sb.append(title).append(": ").append(values.isEmpty() ? "все" : String.join(", ", values)).append("\n");
+    }
+
+    private static void appendStatsSection(StringBuilder sb, String title, List<LeadStatsRow> rows, int maxRows) {
+        sb.append("\n").append(title).append(":\n");
+        if (rows.isEmpty()) {
+            sb.append("—\n");
+            return;
+        }
+        int limit = Math.min(rows.size(), maxRows);
+        for (int i = 0; i < limit; i++) {
+            LeadStatsRow row = rows.get(i);
+            sb.append(row.key()).append(": ").append(statsLine(row)).append("\n");
+        }
+        if (rows.size() > limit) {
+            sb.append("… ещё ").append(rows.size() - limit).append("\n");
+        }
+    }
+
+    private static String statsLine(LeadStatsRow row) {
+        return "заявок=" + row.leads() + " | кол-во=" + row.quantity() + " | сумма=" + row.amount();
+    }
+
+    public static InlineKeyboardMarkup paginationKeyboard(String prefix, int pageNumber, long firstId, long lastId,
+                                                         boolean hasPrev, boolean hasNext) {
+        List<InlineKeyboardRow> rows = new ArrayList<>();
+        List<InlineKeyboardButton> navButtons = new ArrayList<>();
+
+        if (hasPrev) {
+            navButtons.add(InlineKeyboardButton.builder()
+                    .text("⬅️ Previous")
+                    .callbackData(PageCursor.previous(prefix, firstId, pageNumber))
+                    .build());
+        }
+        if (hasNext) {
+            navButtons.add(InlineKeyboardButton.builder()
+                    .text("Next ➡️")
+                    .callbackData(PageCursor.next(prefix, lastId, pageNumber))
+                    .build());
+        }
+
+        if (!navButtons.isEmpty()) {
+            rows.add(new InlineKeyboardRow(navButtons));
+        }
+
+        return rows.isEmpty() ? null : new InlineKeyboardMarkup(rows);
+    }
+
+    public static SendMessage mainMenu(Long chatId) {
+        var message = SendMessage.builder()
+                .text("""
+                        Доступные команды:
+                        
+                        /user_id <id>
+                        /by_phone <телефон>
+                        /leads — последние заявки
+                        /search <запрос> — поиск заявок по ФИО или части телефона
+                        /export [from=… to=… district=… source=… gzip] — выгрузка заявок в CSV (админ)
+                        /stats [дней] — статистика по районам, источникам и дням
+                        
+                        Подписка на рассылку:
+                        /notify_me — подписать текущий чат на рассылку уведомлений
+                        /notify_off — отписаться от рассылки
+                        /filter district|source <значение> — получать только заявки с этим районом или источником
+                        /unfilter district|source <значение> — убрать фильтр, /unfilter all — убрать все
+                        /filters — ваши фильтры
+                        /notify_list — список подписанных пользователей (для админов)
+                        /remove <chatId> — удалить подписчика (для админов)
+                        /stop — прекратить общение и удалить ваши данные
+                        
+                        """)
+                .chatId(chatId)
+                .build();
+
+        var keyBoard = new InlineKeyboardMarkup(List.of(
+                new InlineKeyboardRow(
+                        InlineKeyboardButton.builder().text("Поиск по id").callbackData("search_by_id").build()
+                ),
+                new InlineKeyboardRow(
+                        InlineKeyboardButton.builder().text("Поиск по телефону").callbackData("search_by_phone").build()
+                ),
+                new InlineKeyboardRow(
+                        InlineKeyboardButton.builder().text("Список заявок").callbackData("list_leads").build()
+                ),
+                new InlineKeyboardRow(
+                        InlineKeyboardButton.builder().text("Подписчики").callbackData("list_users").build()
+                ),
+                new InlineKeyboardRow(
+                        InlineKeyboardButton.builder().text("Прекратить общение").callbackData("stop_chat").build()
+                )
+        ));
+        message.setReplyMarkup(keyBoard);
+        return message;
+    }
+}
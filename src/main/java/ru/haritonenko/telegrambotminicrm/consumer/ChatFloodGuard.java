@@ -0,0 +1,105 @@
+package ru.haritonenko.telegrambotminicrm.consumer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-chat update budget as a GCRA token bucket: each chat keeps only its theoretical arrival time in an
+ * AtomicLong that is advanced with CAS, so checks never lock. A chat idle for longer than its burst window is
+ * back to a full bucket, which is why evicting idle chats after {@code idle-ttl} loses nothing.
+ */
+@Component
+public class ChatFloodGuard {
+
+    public enum Decision {
+        ALLOW,
+        DROP,
+        /**
+         * Dropped, and the chat has not been told about throttling within the warn interval.
+         */
+        DROP_AND_WARN
+    }
+
+    private static final class ChatBudget {
+        private final AtomicLong theoreticalArrival;
+        private final AtomicLong warnAfter;
+
+        private ChatBudget(long now) {
+            this.theoreticalArrival = new AtomicLong(now);
+            this.warnAfter = new AtomicLong(now);
+        }
+    }
+
+    private record Limit(long intervalNanos, long toleranceNanos) {
+
+        static Limit of(double perSecond, int burst) {
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(perSecond, 0.001));
+            return new Limit(interval, interval * Math.max(1, burst));
+        }
+    }
+
+    private final Limit userLimit;
+    private final Limit adminLimit;
+    private final long warnIntervalNanos;
+    private final Cache<Long, ChatBudget> budgets;
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public ChatFloodGuard(MeterRegistry meterRegistry,
+                          @Value("${app.flood.user.per-second:1}") double userPerSecond,
+                          @Value("${app.flood.user.burst:5}") int userBurst,
+                          @Value("${app.flood.admin.per-second:5}") double adminPerSecond,
+                          @Value("${app.flood.admin.burst:20}") int adminBurst,
+                          @Value("${app.flood.warn-interval:10s}") Duration warnInterval,
+                          @Value("${app.flood.max-chats:100000}") long maxChats,
+                          @Value("${app.flood.idle-ttl:1m}") Duration idleTtl) {
+        this(meterRegistry, userPerSecond, userBurst, adminPerSecond, adminBurst, warnInterval, maxChats, idleTtl,
+                System::nanoTime);
+    }
+
+    /**
+     * {@code nanoTime} stands in for {@link System#nanoTime()}, e.g. a manually advanced clock in tests.
+     */
+    ChatFloodGuard(MeterRegistry meterRegistry, double userPerSecond, int userBurst, double adminPerSecond,
+                   int adminBurst, Duration warnInterval, long maxChats, Duration idleTtl, LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+        this.userLimit = Limit.of(userPerSecond, userBurst);
+        this.adminLimit = Limit.of(adminPerSecond, adminBurst);
+        this.warnIntervalNanos = warnInterval.toNanos();
+        this.budgets = Caffeine.newBuilder()
+                .maximumSize(maxChats)
+                .expireAfterAccess(idleTtl)
+                .build();
+        Gauge.builder("bot.flood.tracked.chats", budgets, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    public Decision check(long chatId, boolean admin) {
+        Limit limit = admin ? adminLimit : userLimit;
+        long now = nanoTime.getAsLong();
+        ChatBudget budget = budgets.get(chatId, id -> new ChatBudget(now));
+
+        AtomicLong tat = budget.theoreticalArrival;
+        for (;;) {
+            long current = tat.get();
+            long next = (current - now > 0 ? current : now) + limit.intervalNanos();
+            if (next - now > limit.toleranceNanos()) break;
+            if (tat.compareAndSet(current, next)) return Decision.ALLOW;
+        }
+
+        long warnAfter = budget.warnAfter.get();
+        if (now - warnAfter >= 0 && budget.warnAfter.compareAndSet(warnAfter, now + warnIntervalNanos)) {
+            return Decision.DROP_AND_WARN;
+        }
+        return Decision.DROP;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.haritonenko.telegrambotminicrm.consumer;
+
+/**
+ * Keyset position carried in pagination callback data as {@code <prefix>:<n|p>:<boundaryId>:<pageNumber>}.
+ * {@code n} reads rows with id greater than the boundary, {@code p} rows with id less than it.
+ */
+record PageCursor(boolean forward, long boundaryId, int pageNumber) {
+
+    static final PageCursor FIRST = new PageCursor(true, 0L, 0);
+
+    static PageCursor parse(String value) {
+        String[] parts = value.split(":");
+        if (parts.length != 3) return FIRST;
+        try {
+            return new PageCursor("n".equals(parts[0]), Long.parseLong(parts[1]), Math.max(0, Integer.parseInt(parts[2])));
+        } catch (NumberFormatException e) {
+            return FIRST;
+        }
+    }
+
+    static String next(String prefix, long lastId, int pageNumber) {
+        return prefix + ":n:" + lastId + ":" + (pageNumber + 1);
+    }
+
+    static String previous(String prefix, long firstId, int pageNumber) {
+        return prefix + ":p:" + firstId + ":" + Math.max(0, pageNumber - 1);
+    }
+}
@@ -1,54 +1,96 @@
 package ru.haritonenko.telegrambotminicrm.consumer;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.longpolling.util.LongPollingSingleThreadUpdateConsumer;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardRemove;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardRow;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
+import ru.haritonenko.telegrambotminicrm.dto.LeadExportFilter;
+import ru.haritonenko.telegrambotminicrm.metrics.BotMetrics;
 import ru.haritonenko.telegrambotminicrm.model.Lead;
+import ru.haritonenko.telegrambotminicrm.model.SubscriptionFilterKind;
 import ru.haritonenko.telegrambotminicrm.model.User;
 import ru.haritonenko.telegrambotminicrm.repository.LeadRepository;
+import ru.haritonenko.telegrambotminicrm.service.LeadExportService;
+import ru.haritonenko.telegrambotminicrm.service.LeadSearchService;
+import ru.haritonenko.telegrambotminicrm.service.LeadStatsService;
+import ru.haritonenko.telegrambotminicrm.service.MessageGateway;
 import ru.haritonenko.telegrambotminicrm.service.UserService;
-
-import java.time.format.DateTimeFormatter;
+import ru.haritonenko.telegrambotminicrm.util.LogRedactor;
+import ru.haritonenko.telegrambotminicrm.util.LogSampler;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
+public class UpdateConsumer {
 
     @Value("${admin.ids:}")
     private String adminIdsRaw;
-    @Value("${app.pagination.default-page:0}")
-    private int defaultPage;
     @Value("${app.pagination.default-size:20}")
     private int defaultSize;
     @Value("${app.pagination.max-size:100}")
     private int maxSize;
+    @Value("${app.leads.recent-window:90d}")
+    private Duration recentLeadsWindow;
+    @Value("${app.logging.update-sample-every:100}")
+    private long updateLogSampleEvery;
+
+    private static final int STATS_DEFAULT_DAYS = 30;
+    private static final int STATS_MAX_ROWS = 15;
+    private static final String SEARCH_PAGE_PREFIX = "search_page:";
+    private static final Pattern EXPORT_OPTION = Pattern.compile("(\\w+)=(?:\"([^\"]*)\"|(\\S+))|(\\S+)");
+    private static final String EXPORT_USAGE = """
+            Использование: /export [from=ГГГГ-ММ-ДД] [to=ГГГГ-ММ-ДД] [district=...] [source=...] [gzip]
+            Значения с пробелами берите в кавычки: district="Центральный район\"""";
+    private static final int FILTER_VALUE_MAX_LENGTH = 100;
+    private static final String FILTER_USAGE = "Использование: /filter district|source <значение>";
+    private static final String SEND_FAILED_REPLY = "Не удалось отправить ответ, попробуйте ещё раз.";
+    private static final Duration SEARCH_SESSION_TTL = Duration.ofMinutes(30);
+    private static final int SEARCH_SESSION_MAX = 10_000;
 
     private Set<Long> adminIds;
-    private final TelegramClient telegramClient;
+    private LogSampler updateLogSampler;
+    private final ChatFloodGuard floodGuard;
+    private final MessageGateway messageGateway;
+    private final LeadStatsService leadStatsService;
+    private final LeadSearchService leadSearchService;
+    private final LeadExportService leadExportService;
     private final UserService userService;
     private final LeadRepository leadRepository;
-    private static final DateTimeFormatter LEAD_DT_FMT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private final BotMetrics botMetrics;
+    /**
+     * Search queries don't fit into 64-byte callback data, so pagination buttons carry a short token instead.
+     */
+    private final Cache<String, LeadSearchService.Query> searchSessions = Caffeine.newBuilder()
+            .maximumSize(SEARCH_SESSION_MAX)
+            .expireAfterAccess(SEARCH_SESSION_TTL)
+            .build();
 
     @PostConstruct
     void initAdmins() {
+        updateLogSampler = new LogSampler(updateLogSampleEvery);
         if (adminIdsRaw == null || adminIdsRaw.isBlank()) {
             adminIds = Collections.emptySet();
             return;
@@ -59,7 +101,6 @@ public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
                 .map(Long::parseLong)
                 .collect(Collectors.toSet());
         log.info("Admin ids initialized: {}", adminIds);
-        if (defaultPage < 0) defaultPage = 0;
         if (defaultSize <= 0) defaultSize = 20;
         if (maxSize <= 0) maxSize = 100;
     }
@@ -89,10 +130,37 @@ public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
         log.info("New user created: chatId={}", chatId);
     }
 
-    @Override
     public void consume(Update update) {
         if (update == null) return;
+        if (throttled(update)) return;
+        botMetrics.recordUpdateLag(update);
+        Timer.Sample sample = botMetrics.startTimer();
+        try {
+            handle(update);
+        } finally {
+            botMetrics.recordUpdate(sample, update);
+        }
+    }
 
+    /**
+     * Runs before any DB work; dropped updates are counted and the chat is told at most once per warn interval.
+     */
+    private boolean throttled(Update update) {
+        Long chatId = UpdateDispatcher.chatIdOf(update);
+        if (chatId == null) return false;
+        boolean admin = isAdmin(chatId);
+        ChatFloodGuard.Decision decision = floodGuard.check(chatId, admin);
+        if (decision == ChatFloodGuard.Decision.ALLOW) return false;
+
+        botMetrics.recordThrottled(admin, update.hasCallbackQuery() ? "callback" : "message");
+        if (decision == ChatFloodGuard.Decision.DROP_AND_WARN) {
+            sendMessage(chatId, "Слишком много запросов, подождите немного ⏳");
+            log.warn("Throttling updates from chatId={}", chatId);
+        }
+        return true;
+    }
+
+    private void handle(Update update) {
         try {
             if (update.hasCallbackQuery()) {
                 log.debug("Received callback query");
@@ -108,13 +176,15 @@ public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
             ensureUserExists(message);
 
             String text = message.getText().trim();
-            log.info("Received message from chatId={}: {}", chatId, text);
+            if (updateLogSampler.sample()) {
+                log.info("Received message from chatId={}: {} (1 of {} updates logged)",
+                        chatId, LogRedactor.text(text), updateLogSampler.every());
+            }
 
             String reply;
 
             if (text.equals("/start") || text.equals("/help")) {
-                hideReplyKeyboard(chatId);
-                sendMainMenu(chatId);
+                sendMainMenu(chatId, text.equals("/start"));
                 return;
             } else if (text.startsWith("/user_id")) {
                 reply = handleGetById(text);
@@ -168,9 +238,15 @@ public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
                     reply = "Доступ запрещён.";
                     log.warn("Notify list access denied for chatId={}", chatId);
                 } else {
-                    sendUsersPage(chatId, defaultPage);
+                    sendUsersPage(chatId, PageCursor.FIRST);
                     return;
                 }
+            } else if (text.equals("/filters")) {
+                reply = BotMessages.filters(userService.getFilters(chatId));
+            } else if (text.equals("/filter") || text.startsWith("/filter ")) {
+                reply = handleFilter(chatId, text.substring("/filter".length()), true);
+            } else if (text.equals("/unfilter") || text.startsWith("/unfilter ")) {
+                reply = handleFilter(chatId, text.substring("/unfilter".length()), false);
             } else if (text.startsWith("/remove")) {
                 if (!isAdmin(chatId)) {
                     reply = "Доступ запрещён.";
@@ -199,8 +275,28 @@ public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
                         """;
                 log.info("User requested stop and was deleted: chatId={}", chatId);
             } else if (text.equals("/leads")) {
-                sendLeadsPage(chatId, defaultPage);
+                sendLeadsPage(chatId, PageCursor.FIRST);
                 return;
+            } else if (text.equals("/stats") || text.startsWith("/stats ")) {
+                reply = handleStats(text);
+            } else if (text.equals("/export") || text.startsWith("/export ")) {
+                if (!isAdmin(chatId)) {
+                    reply = "Доступ запрещён.";
+                    log.warn("Export access denied for chatId={}", chatId);
+                } else {
+                    reply = handleExport(chatId, text.substring("/export".length()));
+                }
+            } else if (text.equals("/search") || text.startsWith("/search ")) {
+                var query = LeadSearchService.parse(text.substring("/search".length()));
+                if (query.isEmpty()) {
+                    reply = "Использование: /search <ФИО или часть телефона>, не короче "
+                            + LeadSearchService.MIN_QUERY_LENGTH + " символов";
+                } else {
+                    String token = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+                    searchSessions.put(token, query.get());
+                    sendSearchPage(chatId, token, PageCursor.FIRST);
+                    return;
+                }
             } else {
                 reply = "Не знаю такую команду. Напишите /help";
             }
@@ -215,19 +311,12 @@ public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
         }
     }
 
-    private String formatUserShort(User u) {
-        String uname = u.getUsername() != null ? ("@" + u.getUsername()) : "-";
-        String phone = u.getPhone() != null ? UserService.normalizePhone(u.getPhone()) : "-";
-        return "%d | chatId=%d | %s | %s | notify=%s"
-                .formatted(u.getId(), u.getChatId(), uname, phone, u.getNotify());
-    }
-
     private String handleGetById(String text) {
         String[] parts = text.split("\\s+");
         if (parts.length < 2) return "Укажите id: /user_id <id>";
         Long id = Long.parseLong(parts[1]);
         return userService.getById(id)
-                .map(this::formatUserShort)
+                .map(BotMessages::userShort)
                 .orElse("Не найден пользователь с id=" + id);
     }
 
@@ -235,157 +324,210 @@ public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
         String[] parts = text.split("\\s+", 2);
         if (parts.length < 2) return "Укажите телефон: /by_phone <phone>";
         return userService.getByPhone(parts[1].trim())
-                .map(this::formatUserShort)
+                .map(BotMessages::userShort)
                 .orElse("Не найдено");
     }
 
-    private void sendLeadsPage(Long chatId, int pageNumber) {
-        if (pageNumber < 0) {
-            sendMessage(chatId, "Заявок нет.");
-            return;
+    private String handleFilter(Long chatId, String args, boolean add) {
+        String[] parts = args.trim().split("\\s+", 2);
+        if (!add && parts[0].equalsIgnoreCase("all")) {
+            int removed = userService.clearFilters(chatId);
+            log.info("Cleared {} subscription filters for chatId={}", removed, chatId);
+            return "Фильтры сброшены, вы получаете все заявки.";
+        }
+        SubscriptionFilterKind kind = switch (parts[0].toLowerCase(Locale.ROOT)) {
+            case "district", "район" -> SubscriptionFilterKind.DISTRICT;
+            case "source", "источник" -> SubscriptionFilterKind.SOURCE;
+            default -> null;
+        };
+        if (kind == null || parts.length < 2 || parts[1].isBlank()) {
+            return add ? FILTER_USAGE : "Использование: /unfilter district|source <значение> или /unfilter all";
+        }
+        String value = parts[1].trim();
+        if (value.length() > FILTER_VALUE_MAX_LENGTH) {
+            return "Значение фильтра не длиннее " + FILTER_VALUE_MAX_LENGTH + " символов";
         }
 
-        var pageable = PageRequest.of(pageNumber, pageSize(), Sort.by(Sort.Direction.ASC, "id"));
-        var page = leadRepository.findAll(pageable);
+        if (add) {
+            boolean added = userService.addFilter(chatId, kind, value);
+            log.info("Subscription filter {}={} {} for chatId={}", kind, value, added ? "added" : "already present", chatId);
+            return added ? "Фильтр добавлен ✅\n\n" + BotMessages.filters(userService.getFilters(chatId))
+                    : "Такой фильтр уже есть.";
+        }
+        boolean removed = userService.removeFilter(chatId, kind, value);
+        log.info("Subscription filter {}={} {} for chatId={}", kind, value, removed ? "removed" : "not found", chatId);
+        return removed ? "Фильтр удалён ❌\n\n" + BotMessages.filters(userService.getFilters(chatId))
+                : "Такого фильтра нет.";
+    }
 
-        if (page.isEmpty()) {
-            sendMessage(chatId, "Заявок нет.");
-            return;
+    private String handleStats(String text) {
+        String[] parts = text.split("\\s+");
+        int days = STATS_DEFAULT_DAYS;
+        if (parts.length > 1) {
+            try {
+                days = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                return "Использование: /stats [дней]";
+            }
         }
+        return BotMessages.stats(leadStatsService.stats(days), STATS_MAX_ROWS);
+    }
 
-        List<Lead> leads = page.getContent();
+    private String handleExport(Long chatId, String options) {
+        LocalDate from = null, to = null;
+        String district = null, source = null;
+        boolean gzip = false;
 
-        StringBuilder sb = new StringBuilder("Последние заявки (страница ")
-                .append(pageNumber + 1)
-                .append("):\n\n");
+        Matcher m = EXPORT_OPTION.matcher(options);
+        try {
+            while (m.find()) {
+                if (m.group(4) != null) {
+                    if (!m.group(4).equals("gzip")) return EXPORT_USAGE;
+                    gzip = true;
+                    continue;
+                }
+                String value = m.group(2) != null ? m.group(2) : m.group(3);
+                switch (m.group(1)) {
+                    case "from" -> from = LocalDate.parse(value);
+                    case "to" -> to = LocalDate.parse(value);
+                    case "district" -> district = value;
+                    case "source" -> source = value;
+                    default -> {
+                        return EXPORT_USAGE;
+                    }
+                }
+            }
+        } catch (DateTimeParseException e) {
+            return EXPORT_USAGE;
+        }
 
-        for (Lead l : leads) {
-            String created = l.getCreatedAt() != null ? l.getCreatedAt().format(LEAD_DT_FMT) : "-";
-            sb.append("#").append(l.getId())
-                    .append(" | ").append(l.getFio())
-                    .append(" | ").append(l.getPhone())
-                    .append(" | ").append(l.getDistrict())
-                    .append(" | ").append(l.getSource())
-                    .append(" | кол-во=").append(l.getQuantity())
-                    .append(" | сумма=").append(l.getAmount())
-                    .append(" | ").append(created)
-                    .append("\n\n");
+        if (!leadExportService.exportToChat(chatId, new LeadExportFilter(from, to, district, source), gzip)) {
+            return "Сейчас уже выполняются другие выгрузки, попробуйте позже.";
         }
+        log.info("Export started for chatId={}", chatId);
+        return "Готовлю выгрузку, файл придёт отдельным сообщением.";
+    }
 
-        InlineKeyboardMarkup keyboard = buildPaginationKeyboard("leads_page", pageNumber, page.hasPrevious(), page.hasNext());
-        sendMessage(chatId, sb.toString(), keyboard);
-        log.info("Leads page {} sent to chatId={}", pageNumber, chatId);
+    private record KeysetSlice<T>(List<T> items, boolean hasPrevious, boolean hasNext) {
     }
 
-    private void sendUsersPage(Long chatId, int pageNumber) {
-        if (pageNumber < 0) {
-            sendMessage(chatId, "Пользователей нет.");
-            return;
+    private <T> KeysetSlice<T> fetchSlice(PageCursor cursor,
+                                          BiFunction<Long, Limit, List<T>> after,
+                                          BiFunction<Long, Limit, List<T>> before) {
+        int size = pageSize();
+        Limit probe = Limit.of(size + 1);
+        if (cursor.forward()) {
+            List<T> rows = after.apply(cursor.boundaryId(), probe);
+            boolean hasNext = rows.size() > size;
+            return new KeysetSlice<>(hasNext ? rows.subList(0, size) : rows, cursor.pageNumber() > 0, hasNext);
         }
+        List<T> rows = before.apply(cursor.boundaryId(), probe);
+        boolean hasPrevious = rows.size() > size;
+        List<T> items = new ArrayList<>(hasPrevious ? rows.subList(0, size) : rows);
+        Collections.reverse(items);
+        return new KeysetSlice<>(items, hasPrevious, true);
+    }
 
-        var pageable = PageRequest.of(pageNumber, pageSize(), Sort.by(Sort.Direction.ASC, "id"));
-        var page = userService.findNotifyOn(pageable);
+    private void sendLeadsPage(Long chatId, PageCursor cursor) {
+        OffsetDateTime since = OffsetDateTime.now(ZoneOffset.UTC).minus(recentLeadsWindow);
+        var slice = fetchSlice(cursor,
+                (id, limit) -> leadRepository.findByCreatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(since, id, limit),
+                (id, limit) -> leadRepository.findByCreatedAtGreaterThanEqualAndIdLessThanOrderByIdDesc(since, id, limit));
 
-        if (page.isEmpty()) {
-            sendMessage(chatId, "Пользователей нет.");
+        if (slice.items().isEmpty()) {
+            sendMessage(chatId, "Заявок нет.");
             return;
         }
 
-        List<User> users = page.getContent();
+        List<Lead> leads = slice.items();
 
-        StringBuilder sb = new StringBuilder("Подписчики (страница ")
-                .append(pageNumber + 1)
-                .append("):\n\n");
+        InlineKeyboardMarkup keyboard = BotMessages.paginationKeyboard("leads_page", cursor.pageNumber(),
+                leads.getFirst().getId(), leads.getLast().getId(), slice.hasPrevious(), slice.hasNext());
+        sendMessage(chatId, BotMessages.leadsPage(leads, cursor.pageNumber()), keyboard);
+        log.debug("Leads page {} sent to chatId={}", cursor.pageNumber(), chatId);
+    }
 
-        for (User u : users) {
-            sb.append(formatUserShort(u)).append("\n\n");
+    private void sendSearchPage(Long chatId, String token, PageCursor cursor) {
+        LeadSearchService.Query query = searchSessions.getIfPresent(token);
+        if (query == null) {
+            sendMessage(chatId, "Результаты поиска устарели, повторите /search <запрос>.");
+            return;
         }
 
-        InlineKeyboardMarkup keyboard = buildPaginationKeyboard("users_page", pageNumber, page.hasPrevious(), page.hasNext());
-        sendMessage(chatId, sb.toString(), keyboard);
-        log.info("Users page {} sent to chatId={}", pageNumber, chatId);
+        var slice = fetchSlice(cursor,
+                (id, limit) -> leadSearchService.after(query, id, limit.max()),
+                (id, limit) -> leadSearchService.before(query, id, limit.max()));
+
+        if (slice.items().isEmpty()) {
+            sendMessage(chatId, "Ничего не найдено.");
+            return;
+        }
+
+        List<Lead> leads = slice.items();
+
+        InlineKeyboardMarkup keyboard = BotMessages.paginationKeyboard(SEARCH_PAGE_PREFIX + token, cursor.pageNumber(),
+                leads.getFirst().getId(), leads.getLast().getId(), slice.hasPrevious(), slice.hasNext());
+        sendMessage(chatId, BotMessages.leadsPage("Найденные заявки", leads, cursor.pageNumber()), keyboard);
+        log.debug("Search page {} sent to chatId={}", cursor.pageNumber(), chatId);
     }
 
-    private InlineKeyboardMarkup buildPaginationKeyboard(String prefix, int pageNumber, boolean hasPrev, boolean hasNext) {
-        List<InlineKeyboardRow> rows = new ArrayList<>();
-        List<InlineKeyboardButton> navButtons = new ArrayList<>();
+    private void sendUsersPage(Long chatId, PageCursor cursor) {
+        var slice = fetchSlice(cursor, userService::findNotifyOnAfter, userService::findNotifyOnBefore);
 
-        if (hasPrev) {
-            navButtons.add(InlineKeyboardButton.builder()
-                    .text("⬅️ Previous")
-                    .callbackData(prefix + ":" + (pageNumber - 1))
-                    .build());
-        }
-        if (hasNext) {
-            navButtons.add(InlineKeyboardButton.builder()
-                    .text("Next ➡️")
-                    .callbackData(prefix + ":" + (pageNumber + 1))
-                    .build());
+        if (slice.items().isEmpty()) {
+            sendMessage(chatId, "Пользователей нет.");
+            return;
         }
 
-        if (!navButtons.isEmpty()) {
-            rows.add(new InlineKeyboardRow(navButtons));
+        List<User> users = slice.items();
+
+        StringBuilder sb = new StringBuilder("Подписчики (страница ")
+                .append(cursor.pageNumber() + 1)
+                .append("):\n\n");
+
+        for (User u : users) {
+            sb.append(BotMessages.userShort(u)).append("\n\n");
         }
 
-        return rows.isEmpty() ? null : new InlineKeyboardMarkup(rows);
+        InlineKeyboardMarkup keyboard = BotMessages.paginationKeyboard("users_page", cursor.pageNumber(),
+                users.getFirst().getId(), users.getLast().getId(), slice.hasPrevious(), slice.hasNext());
+        sendMessage(chatId, sb.toString(), keyboard);
+        log.debug("Users page {} sent to chatId={}", cursor.pageNumber(), chatId);
     }
 
-    @SneakyThrows
-    private void sendMainMenu(Long chatId) {
-        var message = SendMessage.builder()
-                .text("""
-                        Доступные команды:
-                        
-                        /user_id <id>
-                        /by_phone <телефон>
-                        /leads — последние заявки
-                        
-                        Подписка на рассылку:
-                        /notify_me — подписать текущий чат на рассылку уведомлений
-                        /notify_off — отписаться от рассылки
-                        /notify_list — список подписанных пользователей (для админов)
-                        /remove <chatId> — удалить подписчика (для админов)
-                        /stop — прекратить общение и удалить ваши данные
-                        
-                        """)
-                .chatId(chatId)
-                .build();
-
-        var keyBoard = new InlineKeyboardMarkup(List.of(
-                new InlineKeyboardRow(
-                        InlineKeyboardButton.builder().text("Поиск по id").callbackData("search_by_id").build()
-                ),
-                new InlineKeyboardRow(
-                        InlineKeyboardButton.builder().text("Поиск по телефону").callbackData("search_by_phone").build()
-                ),
-                new InlineKeyboardRow(
-                        InlineKeyboardButton.builder().text("Список заявок").callbackData("list_leads").build()
-                ),
-                new InlineKeyboardRow(
-                        InlineKeyboardButton.builder().text("Подписчики").callbackData("list_users").build()
-                ),
-                new InlineKeyboardRow(
-                        InlineKeyboardButton.builder().text("Прекратить общение").callbackData("stop_chat").build()
-                )
-        ));
-        message.setReplyMarkup(keyBoard);
-        telegramClient.execute(message);
-        log.info("Main menu sent to chatId={}", chatId);
+    /**
+     * One message: the greeting goes into the menu text. The menu's inline keyboard is the message's only
+     * reply markup; the bot never shows a reply keyboard, so there is none to remove.
+     */
+    private void sendMainMenu(Long chatId, boolean greet) {
+        SendMessage menu = BotMessages.mainMenu(chatId);
+        String text = greet ? "Добро пожаловать!\n\n" + menu.getText() : menu.getText();
+        reportFailure(chatId, messageGateway.send(chatId, text, menu.getReplyMarkup()));
+        log.debug("Main menu queued for chatId={}", chatId);
     }
 
     private void handleCallbackQuery(CallbackQuery cb) {
         Long chatId = cb.getMessage().getChatId();
         String data = cb.getData();
-        log.info("Callback query from chatId={}, data={}", chatId, data);
+        if (updateLogSampler.sample()) {
+            log.info("Callback query from chatId={}, data={} (1 of {} updates logged)",
+                    chatId, data, updateLogSampler.every());
+        }
 
         if (data.startsWith("leads_page:")) {
-            int page = Integer.parseInt(data.substring("leads_page:".length()));
-            sendLeadsPage(chatId, page);
+            sendLeadsPage(chatId, PageCursor.parse(data.substring("leads_page:".length())));
+            return;
+        }
+        if (data.startsWith(SEARCH_PAGE_PREFIX)) {
+            String rest = data.substring(SEARCH_PAGE_PREFIX.length());
+            int colon = rest.indexOf(':');
+            if (colon > 0) {
+                sendSearchPage(chatId, rest.substring(0, colon), PageCursor.parse(rest.substring(colon + 1)));
+            }
             return;
         }
         if (data.startsWith("users_page:")) {
-            int page = Integer.parseInt(data.substring("users_page:".length()));
-            sendUsersPage(chatId, page);
+            sendUsersPage(chatId, PageCursor.parse(data.substring("users_page:".length())));
             return;
         }
 
@@ -395,15 +537,15 @@ public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
             case "search_by_phone" ->
                     sendMessage(chatId, "Введите: /by_phone <телефон>\nНапример: /by_phone +7(999)123-45-67");
             case "list_leads" -> {
-                sendLeadsPage(chatId, defaultPage);
-                log.info("Leads list sent via callback to chatId={}", chatId);
+                sendLeadsPage(chatId, PageCursor.FIRST);
+                log.debug("Leads list sent via callback to chatId={}", chatId);
             }
             case "list_users" -> {
                 if (!isAdmin(chatId)) {
                     sendMessage(chatId, "Доступ запрещён.");
                     log.warn("list_users access denied for chatId={}", chatId);
                 } else {
-                    sendUsersPage(chatId, defaultPage);
+                    sendUsersPage(chatId, PageCursor.FIRST);
                 }
             }
             case "stop_chat" -> {
@@ -420,31 +562,22 @@ public class UpdateConsumer implements LongPollingSingleThreadUpdateConsumer {
         }
     }
 
-    @SneakyThrows
     private void sendMessage(Long chatId, String messageText) {
         sendMessage(chatId, messageText, null);
     }
 
-    @SneakyThrows
     private void sendMessage(Long chatId, String messageText, InlineKeyboardMarkup keyboard) {
-        SendMessage.SendMessageBuilder builder = SendMessage.builder()
-                .text(messageText)
-                .chatId(chatId.toString());
-        if (keyboard != null) {
-            builder.replyMarkup(keyboard);
-        }
-        telegramClient.execute(builder.build());
-        log.debug("Sent message to chatId={}", chatId);
+        reportFailure(chatId, messageGateway.send(chatId, messageText, keyboard));
     }
 
-    @SneakyThrows
-    private void hideReplyKeyboard(Long chatId) {
-        var message = SendMessage.builder()
-                .chatId(chatId.toString())
-                .text("Добро пожаловать!")
-                .replyMarkup(new ReplyKeyboardRemove(true))
-                .build();
-        telegramClient.execute(message);
-        log.debug("Reply keyboard removed for chatId={}", chatId);
+    /**
+     * A reply that could not be delivered is followed by one short error reply (the gateway has already logged
+     * the cause), unless the chat blocked the bot. A failure of that error reply is only logged.
+     */
+    private void reportFailure(Long chatId, CompletableFuture<Void> sent) {
+        sent.exceptionally(error -> {
+            if (!MessageGateway.isBlocked(error)) messageGateway.send(chatId, SEND_FAILED_REPLY);
+            return null;
+        });
     }
 }
@@ -0,0 +1,113 @@
+package ru.haritonenko.telegrambotminicrm.consumer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads updates over single-threaded shards keyed by chatId: updates of one chat
+ * are handled in arrival order, different chats are handled concurrently.
+ * A full shard queue blocks the poller instead of dropping updates.
+ */
+@Component
+@Slf4j
+public class UpdateDispatcher implements LongPollingUpdateConsumer {
+
+    private final UpdateConsumer updateConsumer;
+    private final ThreadPoolExecutor[] shards;
+    private final int queueCapacity;
+
+    public UpdateDispatcher(UpdateConsumer updateConsumer,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.dispatcher.shards:8}") int shardCount,
+                            @Value("${app.dispatcher.queue-capacity:1000}") int queueCapacity) {
+        this.updateConsumer = updateConsumer;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.shards = new ThreadPoolExecutor[Math.max(1, shardCount)];
+        RejectedExecutionHandler blockWhenFull = (task, executor) -> {
+            if (executor.isShutdown()) throw new RejectedExecutionException("Update dispatcher is shut down");
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for shard queue", e);
+            }
+        };
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(this.queueCapacity),
+                    Thread.ofVirtual().name("update-shard-" + i).factory(),
+                    blockWhenFull);
+            Gauge.builder("bot.dispatcher.queue.depth", shards[i], executor -> executor.getQueue().size())
+                    .tag("shard", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+        Gauge.builder("bot.dispatcher.queue.capacity", () -> this.queueCapacity).register(meterRegistry);
+        log.info("Update dispatcher started: shards={}, queueCapacity={}", shards.length, this.queueCapacity);
+    }
+
+    @Override
+    public void consume(List<Update> updates) {
+        for (Update update : updates) {
+            dispatch(update);
+        }
+    }
+
+    public void dispatch(Update update) {
+        if (update == null) return;
+        shardFor(chatIdOf(update)).execute(() -> {
+            try {
+                updateConsumer.consume(update);
+            } catch (Exception e) {
+                log.error("Unhandled error while processing update id={}", update.getUpdateId(), e);
+            }
+        });
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public int queueCapacity() {
+        return queueCapacity;
+    }
+
+    public int queueDepth(int shard) {
+        return shards[shard].getQueue().size();
+    }
+
+    private ThreadPoolExecutor shardFor(Long chatId) {
+        if (chatId == null) return shards[0];
+        return shards[Math.floorMod(Long.hashCode(chatId), shards.length)];
+    }
+
+    static Long chatIdOf(Update update) {
+        if (update.hasMessage()) return update.getMessage().getChatId();
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        }
+        return null;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+        for (ThreadPoolExecutor shard : shards) {
+            if (!shard.awaitTermination(5, TimeUnit.SECONDS)) shard.shutdownNow();
+        }
+    }
+}
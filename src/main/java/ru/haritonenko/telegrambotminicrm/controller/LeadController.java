@@ -1,37 +1,275 @@
 package ru.haritonenko.telegrambotminicrm.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.haritonenko.telegrambotminicrm.dto.LeadExportFilter;
+import ru.haritonenko.telegrambotminicrm.dto.LeadImportResponse;
 import ru.haritonenko.telegrambotminicrm.dto.LeadRequest;
-import ru.haritonenko.telegrambotminicrm.service.NotificationService;
+import ru.haritonenko.telegrambotminicrm.dto.LeadSearchResponse;
+import ru.haritonenko.telegrambotminicrm.model.Lead;
+import ru.haritonenko.telegrambotminicrm.repository.LeadImportRepository;
+import ru.haritonenko.telegrambotminicrm.service.LeadAdmissionControl;
+import ru.haritonenko.telegrambotminicrm.service.LeadExportService;
+import ru.haritonenko.telegrambotminicrm.service.LeadImportService;
+import ru.haritonenko.telegrambotminicrm.service.LeadSearchService;
+import ru.haritonenko.telegrambotminicrm.service.LeadService;
+import ru.haritonenko.telegrambotminicrm.service.LeadStatsService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/leads")
 public class LeadController {
 
-    private final NotificationService notificationService;
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final LeadService leadService;
+    private final LeadStatsService leadStatsService;
+    private final LeadSearchService leadSearchService;
+    private final LeadExportService leadExportService;
+    private final LeadImportService leadImportService;
+    private final LeadAdmissionControl admissionControl;
+    private final ObjectMapper objectMapper;
 
     @Value("${lead.api-key:changeme}")
     private String apiKey;
+    @Value("${app.batch.max-size:1000}")
+    private int maxBatchSize;
+    @Value("${app.pagination.max-size:100}")
+    private int maxPageSize;
+    @Value("${app.export.retry-after-seconds:30}")
+    private long exportRetryAfterSeconds;
+
+    @FunctionalInterface
+    private interface AdmittedCall {
+        ResponseEntity<?> call() throws IOException;
+    }
+
+    private ResponseEntity<?> admitted(AdmittedCall call) throws IOException {
+        LeadAdmissionControl.Rejection rejection = admissionControl.tryAdmit();
+        if (rejection != null) {
+            return ResponseEntity.status(rejection.status())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(rejection.retryAfterSeconds()))
+                    .body(rejection.reason());
+        }
+        try {
+            return call.call();
+        } finally {
+            admissionControl.release();
+        }
+    }
 
     @PostMapping
     public ResponseEntity<?> acceptLead(
             @RequestHeader("X-Api-Key") String key,
-            @Valid @RequestBody LeadRequest lead) {
+            @Valid @RequestBody LeadRequest lead) throws IOException {
+
+        if (!apiKey.equals(key)) {
+            return ResponseEntity.status(401).body("Unauthorized");
+        }
+
+        return admitted(() -> {
+            boolean created = leadService.acceptLead(lead);
+            if (!created) {
+                return ResponseEntity.status(409).body("Lead with this phone already exists");
+            }
+            return ResponseEntity.status(202).build();
+        });
+    }
+
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> acceptLeadBatch(
+            @RequestHeader("X-Api-Key") String key,
+            @RequestBody List<JsonNode> items) throws IOException {
+
+        if (!apiKey.equals(key)) {
+            return ResponseEntity.status(401).body("Unauthorized");
+        }
+        if (items.size() > maxBatchSize) {
+            return ResponseEntity.status(413).body("Batch is limited to " + maxBatchSize + " leads");
+        }
+
+        List<LeadRequest> leads = new ArrayList<>(items.size());
+        for (JsonNode item : items) {
+            leads.add(parse(item));
+        }
+        return admitted(() -> ResponseEntity.status(202).body(leadService.acceptBatch(leads)));
+    }
+
+    @PostMapping(path = "/batch", consumes = APPLICATION_NDJSON)
+    public ResponseEntity<?> acceptLeadBatchNdjson(
+            @RequestHeader("X-Api-Key") String key,
+            HttpServletRequest request) throws IOException {
+
+        if (!apiKey.equals(key)) {
+            return ResponseEntity.status(401).body("Unauthorized");
+        }
+
+        return admitted(() -> {
+            List<LeadRequest> leads = new ArrayList<>();
+            try (BufferedReader reader = request.getReader()) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    if (leads.size() == maxBatchSize) {
+                        return ResponseEntity.status(413).body("Batch is limited to " + maxBatchSize + " leads");
+                    }
+                    leads.add(parse(line));
+                }
+            }
+            return ResponseEntity.status(202).body(leadService.acceptBatch(leads));
+        });
+    }
+
+    /**
+     * Bulk import of historical leads, CSV with a header row and columns
+     * {@value LeadImportRepository#CSV_COLUMNS}. Send {@code Content-Encoding: gzip} for a compressed body.
+     */
+    @PostMapping(path = "/import", consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<?> importLeads(
+            @RequestHeader("X-Api-Key") String key,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            HttpServletRequest request) throws IOException {
+
+        if (!apiKey.equals(key)) {
+            return ResponseEntity.status(401).body("Unauthorized");
+        }
+
+        return admitted(() -> {
+            try (InputStream body = "gzip".equalsIgnoreCase(contentEncoding)
+                    ? new GZIPInputStream(request.getInputStream())
+                    : request.getInputStream()) {
+                LeadImportResponse result = leadImportService.importCsv(body);
+                return ResponseEntity.ok(result);
+            } catch (SQLException e) {
+                return ResponseEntity.badRequest().body("Import rejected: " + e.getMessage());
+            } catch (DataAccessException e) {
+                // bad casts or constraint violations in the staged data, raised by the set-based move
+                return ResponseEntity.badRequest().body("Import rejected: " + e.getMostSpecificCause().getMessage());
+            }
+        });
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<?> stats(
+            @RequestHeader("X-Api-Key") String key,
+            @RequestParam(defaultValue = "30") int days) {
+
+        if (!apiKey.equals(key)) {
+            return ResponseEntity.status(401).body("Unauthorized");
+        }
+
+        return ResponseEntity.ok(leadStatsService.stats(days));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+            @RequestHeader("X-Api-Key") String key,
+            @RequestParam("q") String q,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "20") int limit) {
 
         if (!apiKey.equals(key)) {
             return ResponseEntity.status(401).body("Unauthorized");
         }
 
-        boolean created = notificationService.broadcastLead(lead);
-        if (!created) {
-            return ResponseEntity.status(409).body("Lead with this phone already exists");
+        var query = LeadSearchService.parse(q);
+        if (query.isEmpty()) {
+            return ResponseEntity.badRequest().body("Query must be " + LeadSearchService.MIN_QUERY_LENGTH
+                    + ".." + LeadSearchService.MAX_QUERY_LENGTH + " characters");
         }
 
-        return ResponseEntity.status(201).build();
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        List<Lead> rows = leadSearchService.after(query.get(), after, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<Lead> items = hasNext ? rows.subList(0, size) : rows;
+        return ResponseEntity.ok(new LeadSearchResponse(items, hasNext ? items.getLast().getId() : null));
+    }
+
+    /**
+     * Admission control only gates the start: the stream then holds an export slot, not an in-flight request
+     * slot, until it completes. Rejections carry no body, the return type has to stay a streaming one.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestHeader("X-Api-Key") String key,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String district,
+            @RequestParam(required = false) String source,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        if (!apiKey.equals(key)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        LeadAdmissionControl.Rejection rejection = admissionControl.tryAdmit();
+        if (rejection != null) {
+            return ResponseEntity.status(rejection.status())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(rejection.retryAfterSeconds()))
+                    .build();
+        }
+        admissionControl.release();
+        if (!leadExportService.tryAcquireSlot()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(exportRetryAfterSeconds))
+                    .build();
+        }
+
+        LeadExportFilter filter = new LeadExportFilter(from, to, district, source);
+        StreamingResponseBody body = out -> {
+            try {
+                leadExportService.writeCsv(filter, out, gzip);
+            } finally {
+                leadExportService.releaseSlot();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? APPLICATION_GZIP : TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(LeadExportService.fileName(gzip))
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    private LeadRequest parse(JsonNode node) {
+        try {
+            return objectMapper.treeToValue(node, LeadRequest.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private LeadRequest parse(String line) {
+        try {
+            return objectMapper.readValue(line, LeadRequest.class);
+        } catch (Exception e) {
+            return null;
+        }
     }
 }
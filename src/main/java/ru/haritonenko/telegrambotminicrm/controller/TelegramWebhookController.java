@@ -0,0 +1,45 @@
+package ru.haritonenko.telegrambotminicrm.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.haritonenko.telegrambotminicrm.consumer.UpdateDispatcher;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "bot.mode", havingValue = "webhook")
+public class TelegramWebhookController {
+
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final UpdateDispatcher updateDispatcher;
+
+    @Value("${bot.webhook.secret}")
+    private String secret;
+
+    @PostMapping("${bot.webhook.path:/telegram/webhook}")
+    public ResponseEntity<?> onUpdate(
+            @RequestHeader(value = SECRET_HEADER, required = false) String token,
+            @RequestBody Update update) {
+
+        if (secret.isBlank() || token == null || !MessageDigest.isEqual(
+                secret.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Webhook call rejected: invalid secret token");
+            return ResponseEntity.status(401).build();
+        }
+
+        updateDispatcher.dispatch(update);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,9 @@
+package ru.haritonenko.telegrambotminicrm.dto;
+
+public record LeadBatchItemResult(
+        int index,
+        LeadBatchStatus status,
+        Long id,
+        String error
+) {
+}
@@ -0,0 +1,22 @@
+package ru.haritonenko.telegrambotminicrm.dto;
+
+import java.util.List;
+
+public record LeadBatchResponse(
+        int created,
+        int duplicates,
+        int invalid,
+        List<LeadBatchItemResult> items
+) {
+    public static LeadBatchResponse of(List<LeadBatchItemResult> items) {
+        int created = 0, duplicates = 0, invalid = 0;
+        for (LeadBatchItemResult item : items) {
+            switch (item.status()) {
+                case CREATED -> created++;
+                case DUPLICATE -> duplicates++;
+                case INVALID -> invalid++;
+            }
+        }
+        return new LeadBatchResponse(created, duplicates, invalid, items);
+    }
+}
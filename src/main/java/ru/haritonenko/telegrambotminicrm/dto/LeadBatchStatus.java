@@ -0,0 +1,7 @@
+package ru.haritonenko.telegrambotminicrm.dto;
+
+public enum LeadBatchStatus {
+    CREATED,
+    DUPLICATE,
+    INVALID
+}
@@ -0,0 +1,15 @@
+package ru.haritonenko.telegrambotminicrm.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Optional export filters; {@code from} and {@code to} are inclusive UTC dates, null means unbounded.
+ */
+public record LeadExportFilter(
+        LocalDate from,
+        LocalDate to,
+        String district,
+        String source
+) {
+    public static final LeadExportFilter ALL = new LeadExportFilter(null, null, null, null);
+}
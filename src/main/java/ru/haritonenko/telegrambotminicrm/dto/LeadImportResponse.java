@@ -0,0 +1,9 @@
+package ru.haritonenko.telegrambotminicrm.dto;
+
+public record LeadImportResponse(
+        long rows,
+        long created,
+        long duplicates,
+        long invalid
+) {
+}
@@ -4,12 +4,16 @@ import jakarta.validation.constraints.*;
 
 import java.math.BigDecimal;
 
+/**
+ * Same limits as {@link ru.haritonenko.telegrambotminicrm.model.Lead}: batches are inserted over JDBC,
+ * so these checks are the only ones they get before the database.
+ */
 public record LeadRequest(
-        @NotBlank String fio,
-        @NotBlank String phone,
-        @NotBlank String district,
-        @NotBlank String source,
+        @NotBlank @Size(min = 2, max = 150) String fio,
+        @NotBlank @Size(max = 50) String phone,
+        @NotBlank @Size(max = 100) String district,
+        @NotBlank @Size(max = 100) String source,
         @NotNull @Min(0) Integer quantity,
-        @NotNull @DecimalMin("0.0") @Digits(integer = 12, fraction = 2) BigDecimal amount
+        @NotNull @DecimalMin("0.0") @Digits(integer = 10, fraction = 2) BigDecimal amount
 ) {
 }
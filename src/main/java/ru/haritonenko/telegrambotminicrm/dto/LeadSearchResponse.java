@@ -0,0 +1,14 @@
+package ru.haritonenko.telegrambotminicrm.dto;
+
+import ru.haritonenko.telegrambotminicrm.model.Lead;
+
+import java.util.List;
+
+/**
+ * One page of search results; {@code nextAfter} is the id to pass as {@code after} for the next page, or null on the last one.
+ */
+public record LeadSearchResponse(
+        List<Lead> items,
+        Long nextAfter
+) {
+}
@@ -0,0 +1,14 @@
+package ru.haritonenko.telegrambotminicrm.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record LeadStatsResponse(
+        LocalDate from,
+        LocalDate to,
+        LeadStatsRow total,
+        List<LeadStatsRow> byDistrict,
+        List<LeadStatsRow> bySource,
+        List<LeadStatsRow> byDay
+) {
+}
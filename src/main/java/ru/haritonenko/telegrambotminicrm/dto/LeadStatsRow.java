@@ -0,0 +1,11 @@
+package ru.haritonenko.telegrambotminicrm.dto;
+
+import java.math.BigDecimal;
+
+public record LeadStatsRow(
+        String key,
+        long leads,
+        long quantity,
+        BigDecimal amount
+) {
+}
@@ -0,0 +1,142 @@
+package ru.haritonenko.telegrambotminicrm.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Meters for update handling, Telegram API calls, broadcasts and lead intake.
+ * Command tags are limited to known commands to keep label cardinality bounded.
+ */
+@Component
+@RequiredArgsConstructor
+public class BotMetrics {
+
+    private static final Set<String> KNOWN_COMMANDS = Set.of(
+            "/start", "/help", "/user_id", "/by_phone", "/notify_me", "/notify_off",
+            "/notify_list", "/remove", "/stop", "/leads", "/stats", "/search", "/export",
+            "/filter", "/unfilter", "/filters");
+    private static final Set<String> KNOWN_CALLBACKS = Set.of(
+            "leads_page", "users_page", "search_by_id", "search_by_phone",
+            "list_leads", "list_users", "stop_chat", "search_page");
+
+    private final MeterRegistry registry;
+
+    @FunctionalInterface
+    public interface TelegramCall<T> {
+        T call() throws TelegramApiException;
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    public void recordUpdate(Timer.Sample sample, Update update) {
+        String kind;
+        String command;
+        if (update.hasCallbackQuery()) {
+            kind = "callback";
+            command = callbackTag(update.getCallbackQuery().getData());
+        } else if (update.hasMessage() && update.getMessage().hasText()) {
+            kind = "message";
+            command = commandTag(update.getMessage().getText());
+        } else {
+            kind = "other";
+            command = "none";
+        }
+        sample.stop(registry.timer("bot.update.duration", "kind", kind, "command", command));
+    }
+
+    public void recordThrottled(boolean admin, String kind) {
+        registry.counter("bot.updates.throttled", "role", admin ? "admin" : "user", "kind", kind).increment();
+    }
+
+    public void recordUpdateLag(Update update) {
+        if (!update.hasMessage() || update.getMessage().getDate() == null) return;
+        long lagMillis = System.currentTimeMillis() - update.getMessage().getDate() * 1000L;
+        registry.timer("bot.update.lag").record(Duration.ofMillis(Math.max(0, lagMillis)));
+    }
+
+    public <T> T telegramCall(String method, TelegramCall<T> call) throws TelegramApiException {
+        Timer.Sample sample = Timer.start(registry);
+        Throwable error = null;
+        try {
+            return call.call();
+        } catch (TelegramApiException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            recordTelegramCall(method, sample, error);
+        }
+    }
+
+    public void recordTelegramCall(String method, Timer.Sample sample, Throwable error) {
+        sample.stop(registry.timer("telegram.api.latency", "method", method));
+        registry.counter("telegram.api.requests", "method", method, "outcome", outcomeOf(error)).increment();
+    }
+
+    public void recordBroadcast(long durationNanos, int recipients) {
+        registry.timer("broadcast.duration").record(Duration.ofNanos(durationNanos));
+        DistributionSummary.builder("broadcast.recipients")
+                .baseUnit("chats")
+                .register(registry)
+                .record(recipients);
+    }
+
+    public void recordDelivery(String outcome) {
+        registry.counter("notifications.deliveries", "outcome", outcome).increment();
+    }
+
+    public void recordLeadIngest(String kind, long durationNanos) {
+        registry.timer("leads.ingest.duration", "kind", kind).record(Duration.ofNanos(durationNanos));
+    }
+
+    public void recordLeadResults(long created, long duplicates, long invalid) {
+        leadResultCounter("created").increment(created);
+        leadResultCounter("duplicate").increment(duplicates);
+        leadResultCounter("invalid").increment(invalid);
+    }
+
+    private Counter leadResultCounter(String result) {
+        return registry.counter("leads.ingest.results", "result", result);
+    }
+
+    private static String outcomeOf(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+        if (error == null) return "ok";
+        if (!(error instanceof TelegramApiRequestException e)) return "other";
+        Integer code = e.getErrorCode();
+        if (code == null) return "other";
+        return switch (code) {
+            case 429 -> "rate_limited";
+            case 403 -> "blocked";
+            default -> "other";
+        };
+    }
+
+    private static String commandTag(String text) {
+        String trimmed = text.trim();
+        if (!trimmed.startsWith("/")) return "text";
+        int end = 0;
+        while (end < trimmed.length() && !Character.isWhitespace(trimmed.charAt(end))) end++;
+        String command = trimmed.substring(0, end);
+        return KNOWN_COMMANDS.contains(command) ? command : "unknown";
+    }
+
+    private static String callbackTag(String data) {
+        if (data == null) return "unknown";
+        int colon = data.indexOf(':');
+        String key = colon >= 0 ? data.substring(0, colon) : data;
+        return KNOWN_CALLBACKS.contains(key) ? key : "unknown";
+    }
+}
@@ -0,0 +1,8 @@
+package ru.haritonenko.telegrambotminicrm.model;
+
+public enum DeliveryStatus {
+    PENDING,
+    SENT,
+    BLOCKED,
+    FAILED
+}
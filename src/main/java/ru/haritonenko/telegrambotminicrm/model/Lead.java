@@ -3,10 +3,14 @@ package ru.haritonenko.telegrambotminicrm.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import ru.haritonenko.telegrambotminicrm.util.PhoneNormalizer;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 
+/**
+ * Length limits follow the columns in db/migration, which own the schema; change both together.
+ */
 @Entity
 @Table(schema = "minicrm", name = "leads",
         indexes = {
@@ -26,19 +30,22 @@ public class Lead {
     private Long id;
 
     @NotBlank
-    @Size(min = 2, max = 100, message = "Максимальная длина символов ФИО 100 знаков")
+    @Size(min = 2, max = 150, message = "Длина ФИО от 2 до 150 знаков")
     private String fio;
 
     @NotBlank
-    @Size(max = 15, message = "Максимальный длина символов телефона 15 знаков")
+    @Size(max = 50, message = "Максимальная длина символов телефона 50 знаков")
     private String phone;
 
+    @Column(name = "phone_normalized")
+    private String phoneNormalized;
+
     @NotBlank
-    @Size(max = 50, message = "Максимальная длина символов 50 знаков")
+    @Size(max = 100, message = "Максимальная длина символов района 100 знаков")
     private String district;
 
     @NotBlank
-    @Size(max = 80, message = "Максимальная длина символов источника 80 знаков")
+    @Size(max = 100, message = "Максимальная длина символов источника 100 знаков")
     private String source;
 
     @NotNull
@@ -47,7 +54,7 @@ public class Lead {
 
     @NotNull
     @DecimalMin("0.0")
-    @Digits(integer = 12, fraction = 2)
+    @Digits(integer = 10, fraction = 2)
     private BigDecimal amount;
 
     @Column(name = "created_at", nullable = false)
@@ -56,5 +63,6 @@ public class Lead {
     @PrePersist
     public void prePersist() {
         if (createdAt == null) createdAt = OffsetDateTime.now();
+        if (phoneNormalized == null) phoneNormalized = PhoneNormalizer.normalize(phone);
     }
 }
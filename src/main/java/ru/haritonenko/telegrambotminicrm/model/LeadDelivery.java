@@ -0,0 +1,8 @@
+package ru.haritonenko.telegrambotminicrm.model;
+
+/**
+ * One chat's copy of one notification: the leads it carries, and how many of its message parts were sent.
+ * {@code outboxId} is the first outbox entry of the notification, so a digest of several entries has one key.
+ */
+public record LeadDelivery(long outboxId, long chatId, Long[] leadIds, int partsSent, int attempts) {
+}
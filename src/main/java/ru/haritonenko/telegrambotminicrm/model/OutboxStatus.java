@@ -0,0 +1,7 @@
+package ru.haritonenko.telegrambotminicrm.model;
+
+public enum OutboxStatus {
+    PENDING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,17 @@
+package ru.haritonenko.telegrambotminicrm.model;
+
+import java.util.Locale;
+
+/**
+ * A subscriber only gets leads whose district (or source) matches one of its filters of that kind.
+ * Filters of one kind are OR-ed, different kinds are AND-ed, and a kind without filters matches everything.
+ */
+public record SubscriptionFilter(long chatId, SubscriptionFilterKind kind, String value) {
+
+    /**
+     * Matching key for a filter or lead value: case-insensitive, ignoring surrounding and repeated whitespace.
+     */
+    public static String key(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
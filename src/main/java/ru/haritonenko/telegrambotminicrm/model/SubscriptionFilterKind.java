@@ -0,0 +1,6 @@
+package ru.haritonenko.telegrambotminicrm.model;
+
+public enum SubscriptionFilterKind {
+    DISTRICT,
+    SOURCE
+}
@@ -3,15 +3,20 @@ package ru.haritonenko.telegrambotminicrm.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import ru.haritonenko.telegrambotminicrm.util.PhoneNormalizer;
 
 import java.time.OffsetDateTime;
 
+/**
+ * Length limits follow the columns in db/migration, which own the schema; change both together.
+ */
 @Entity
 @Table(
         schema = "minicrm",
         name = "tg_users",
         indexes = {
-                @Index(name = "ix_tg_user_notify", columnList = "notify")
+                @Index(name = "ix_tg_user_notify", columnList = "notify"),
+                @Index(name = "ix_tg_user_phone_normalized", columnList = "phone_normalized")
         },
         uniqueConstraints = {
                 @UniqueConstraint(name = "ux_tg_user_chat_id", columnNames = {"chat_id"})
@@ -21,7 +26,7 @@ import java.time.OffsetDateTime;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @EqualsAndHashCode(of = "id")
 public class User {
 
@@ -32,18 +37,21 @@ public class User {
     @Column(name = "chat_id", nullable = false, unique = true)
     private Long chatId;
 
-    @Size(max = 50, message = "Максимальная длина никнейма 60 знаков")
+    @Size(max = 64, message = "Максимальная длина никнейма 64 знака")
     @Column(name = "username")
     private String username;
 
-    @Size(max = 15, message = "Максимальная длина символов телефона 15 знаков")
+    @Size(max = 50, message = "Максимальная длина символов телефона 50 знаков")
     @Column(name = "phone")
     private String phone;
 
-    @Size(max = 50, message = "Максимальная длина символов имени 50 знаков")
+    @Column(name = "phone_normalized")
+    private String phoneNormalized;
+
+    @Size(max = 150, message = "Максимальная длина символов имени 150 знаков")
     @Column(name = "first_name")
     private String firstName;
-    @Size(max = 50, message = "Максимальная длина фамилии 50 знаков")
+    @Size(max = 150, message = "Максимальная длина фамилии 150 знаков")
     @Column(name = "last_name")
     private String lastName;
 
@@ -61,10 +69,12 @@ public class User {
         OffsetDateTime now = OffsetDateTime.now();
         if (createdAt == null) createdAt = now;
         updatedAt = now;
+        phoneNormalized = PhoneNormalizer.normalize(phone);
     }
 
     @PreUpdate
     public void preUpdate() {
         updatedAt = OffsetDateTime.now();
+        phoneNormalized = PhoneNormalizer.normalize(phone);
     }
 }
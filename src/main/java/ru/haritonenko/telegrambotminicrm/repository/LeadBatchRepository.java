@@ -0,0 +1,84 @@
+package ru.haritonenko.telegrambotminicrm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.haritonenko.telegrambotminicrm.model.Lead;
+
+import java.sql.Connection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JDBC-level lead writes for bulk intake. Ids are taken from the leads sequence up front,
+ * so a whole batch is inserted by one statement (IDENTITY generation would force row-by-row inserts in Hibernate).
+ */
+@Repository
+@RequiredArgsConstructor
+public class LeadBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Set<String> findExistingPhones(String[] phonesNormalized) {
+        Set<String> existing = new HashSet<>();
+        if (phonesNormalized.length == 0) return existing;
+        jdbcTemplate.query(
+                "SELECT phone_normalized FROM minicrm.lead_phones WHERE phone_normalized = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", phonesNormalized)),
+                rs -> {
+                    existing.add(rs.getString(1));
+                });
+        return existing;
+    }
+
+    public long[] nextIds(int count) {
+        if (count == 0) return new long[0];
+        return jdbcTemplate.queryForList(
+                        "SELECT nextval(pg_get_serial_sequence('minicrm.leads', 'id')) FROM generate_series(1, ?)",
+                        Long.class, count)
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    /**
+     * Inserts leads with preassigned ids in one statement and returns the ids that were actually inserted;
+     * a lead is missing from the result when a concurrent insert already took its normalized phone.
+     * The ids come from RETURNING, not from update counts, which the driver may report as SUCCESS_NO_INFO.
+     */
+    public Set<Long> insertIfPhoneAbsent(List<Lead> leads) {
+        Set<Long> inserted = new HashSet<>();
+        if (leads.isEmpty()) return inserted;
+        jdbcTemplate.query("""
+                WITH lead AS (
+                    SELECT * FROM unnest(?::bigint[], ?::varchar[], ?::varchar[], ?::varchar[],
+                                         ?::varchar[], ?::varchar[], ?::integer[], ?::numeric[])
+                        AS t (id, fio, phone, phone_normalized, district, source, quantity, amount)
+                ), claimed AS (
+                    INSERT INTO minicrm.lead_phones (phone_normalized, lead_id)
+                    SELECT phone_normalized, id FROM lead WHERE phone_normalized IS NOT NULL
+                    ON CONFLICT (phone_normalized) DO NOTHING
+                    RETURNING lead_id
+                )
+                INSERT INTO minicrm.leads (id, fio, phone, phone_normalized, district, source, quantity, amount, created_at)
+                SELECT id, fio, phone, phone_normalized, district, source, quantity, amount, NOW()
+                FROM lead
+                WHERE phone_normalized IS NULL OR id IN (SELECT lead_id FROM claimed)
+                RETURNING id
+                """, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("bigint", leads.stream().map(Lead::getId).toArray()));
+            ps.setArray(2, connection.createArrayOf("varchar", leads.stream().map(Lead::getFio).toArray()));
+            ps.setArray(3, connection.createArrayOf("varchar", leads.stream().map(Lead::getPhone).toArray()));
+            ps.setArray(4, connection.createArrayOf("varchar", leads.stream().map(Lead::getPhoneNormalized).toArray()));
+            ps.setArray(5, connection.createArrayOf("varchar", leads.stream().map(Lead::getDistrict).toArray()));
+            ps.setArray(6, connection.createArrayOf("varchar", leads.stream().map(Lead::getSource).toArray()));
+            ps.setArray(7, connection.createArrayOf("integer", leads.stream().map(Lead::getQuantity).toArray()));
+            ps.setArray(8, connection.createArrayOf("numeric", leads.stream().map(Lead::getAmount).toArray()));
+        }, rs -> {
+            inserted.add(rs.getLong(1));
+        });
+        return inserted;
+    }
+}
@@ -0,0 +1,164 @@
+package ru.haritonenko.telegrambotminicrm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.haritonenko.telegrambotminicrm.model.DeliveryStatus;
+import ru.haritonenko.telegrambotminicrm.model.LeadDelivery;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Per-chat delivery ledger of lead notifications. Rows are written and updated with JDBC batches
+ * so large fan-outs cost a handful of round trips.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LeadDeliveryRepository {
+
+    private static final RowMapper<LeadDelivery> ROW_MAPPER = (rs, i) -> new LeadDelivery(
+            rs.getLong("outbox_id"),
+            rs.getLong("chat_id"),
+            (Long[]) rs.getArray("lead_ids").getArray(),
+            rs.getInt("parts_sent"),
+            rs.getInt("attempts"));
+
+    /**
+     * New state of one ledger row after a send attempt; a null {@code nextAttemptAt} keeps the current lease.
+     */
+    public record Update(LeadDelivery delivery, DeliveryStatus status, int partsSent, int attempts,
+                         OffsetDateTime nextAttemptAt, String lastError) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Rows that already exist are kept as they are, so scheduling the same notification twice is harmless.
+     */
+    public void insertAll(List<LeadDelivery> deliveries) {
+        if (deliveries.isEmpty()) return;
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO minicrm.lead_deliveries (outbox_id, chat_id, lead_ids) VALUES (?, ?, ?)
+                ON CONFLICT (outbox_id, chat_id) DO NOTHING
+                """, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                LeadDelivery d = deliveries.get(i);
+                ps.setLong(1, d.outboxId());
+                ps.setLong(2, d.chatId());
+                ps.setArray(3, ps.getConnection().createArrayOf("bigint", d.leadIds()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return deliveries.size();
+            }
+        });
+    }
+
+    /**
+     * Claims due rows by pushing their next attempt out by the lease; rows claimed by other nodes are skipped.
+     * If this node dies, the rows become due again when the lease runs out and resume from parts_sent.
+     */
+    public List<LeadDelivery> claimDue(int limit, Duration lease) {
+        return jdbcTemplate.query("""
+                UPDATE minicrm.lead_deliveries d
+                SET next_attempt_at = NOW() + ? * INTERVAL '1 millisecond'
+                FROM (
+                    SELECT outbox_id, chat_id
+                    FROM minicrm.lead_deliveries
+                    WHERE status = 'PENDING' AND next_attempt_at <= NOW()
+                    ORDER BY next_attempt_at, outbox_id
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                ) due
+                WHERE d.outbox_id = due.outbox_id AND d.chat_id = due.chat_id
+                RETURNING d.outbox_id, d.chat_id, d.lead_ids, d.parts_sent, d.attempts
+                """, ROW_MAPPER, lease.toMillis(), limit);
+    }
+
+    /**
+     * Sends that are due and not claimed by any node; served by the partial index ix_lead_deliveries_due.
+     */
+    public long countDue() {
+        Long count = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM minicrm.lead_deliveries
+                WHERE status = 'PENDING' AND next_attempt_at <= NOW()
+                """, Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Never moves a row's next attempt earlier, so a retry backoff recorded meanwhile is kept.
+     */
+    public void extendLease(List<LeadDelivery> deliveries, Duration lease) {
+        if (deliveries.isEmpty()) return;
+        Long[] outboxIds = deliveries.stream().map(LeadDelivery::outboxId).toArray(Long[]::new);
+        Long[] chatIds = deliveries.stream().map(LeadDelivery::chatId).toArray(Long[]::new);
+        jdbcTemplate.update("""
+                UPDATE minicrm.lead_deliveries d
+                SET next_attempt_at = GREATEST(d.next_attempt_at, NOW() + ? * INTERVAL '1 millisecond')
+                FROM unnest(?, ?) AS k(outbox_id, chat_id)
+                WHERE d.outbox_id = k.outbox_id AND d.chat_id = k.chat_id AND d.status = 'PENDING'
+                """, ps -> {
+            ps.setLong(1, lease.toMillis());
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", outboxIds));
+            ps.setArray(3, ps.getConnection().createArrayOf("bigint", chatIds));
+        });
+    }
+
+    public void applyAll(List<Update> updates) {
+        if (updates.isEmpty()) return;
+        jdbcTemplate.batchUpdate("""
+                UPDATE minicrm.lead_deliveries
+                SET status = ?, parts_sent = ?, attempts = ?, next_attempt_at = COALESCE(?, next_attempt_at),
+                    last_error = ?, updated_at = NOW()
+                WHERE outbox_id = ? AND chat_id = ?
+                """, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Update u = updates.get(i);
+                ps.setString(1, u.status().name());
+                ps.setInt(2, u.partsSent());
+                ps.setInt(3, u.attempts());
+                ps.setObject(4, u.nextAttemptAt(), Types.TIMESTAMP_WITH_TIMEZONE);
+                ps.setString(5, u.lastError());
+                ps.setLong(6, u.delivery().outboxId());
+                ps.setLong(7, u.delivery().chatId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return updates.size();
+            }
+        });
+    }
+
+    /**
+     * Gives up on everything still queued for chats that blocked the bot.
+     */
+    public int blockPending(Collection<Long> chatIds) {
+        if (chatIds.isEmpty()) return 0;
+        Long[] ids = chatIds.toArray(Long[]::new);
+        return jdbcTemplate.update("""
+                UPDATE minicrm.lead_deliveries
+                SET status = 'BLOCKED', updated_at = NOW()
+                WHERE status = 'PENDING' AND chat_id = ANY(?)
+                """, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)));
+    }
+
+    public int deleteFinishedBefore(OffsetDateTime before) {
+        return jdbcTemplate.update("""
+                DELETE FROM minicrm.lead_deliveries
+                WHERE status <> 'PENDING' AND updated_at < ?
+                """, ps -> ps.setObject(1, before, Types.TIMESTAMP_WITH_TIMEZONE));
+    }
+}
@@ -0,0 +1,62 @@
+package ru.haritonenko.telegrambotminicrm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.haritonenko.telegrambotminicrm.dto.LeadExportFilter;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forward-only read of leads for export. PostgreSQL only honours the fetch size inside a transaction
+ * (autocommit off), otherwise the driver materializes the whole result set in memory.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LeadExportRepository {
+
+    private static final String COLUMNS = "id, fio, phone, district, source, quantity, amount, created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional(readOnly = true)
+    public void stream(LeadExportFilter filter, int fetchSize, RowCallbackHandler handler) {
+        List<String> conditions = new ArrayList<>(4);
+        List<Object> args = new ArrayList<>(4);
+        if (filter.from() != null) {
+            conditions.add("created_at >= ?");
+            args.add(filter.from().atStartOfDay().atOffset(ZoneOffset.UTC));
+        }
+        if (filter.to() != null) {
+            conditions.add("created_at < ?");
+            args.add(filter.to().plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC));
+        }
+        if (filter.district() != null) {
+            conditions.add("district = ?");
+            args.add(filter.district());
+        }
+        if (filter.source() != null) {
+            conditions.add("source = ?");
+            args.add(filter.source());
+        }
+
+        String sql = "SELECT " + COLUMNS + " FROM minicrm.leads"
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY id";
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, handler);
+    }
+}
@@ -0,0 +1,145 @@
+package ru.haritonenko.telegrambotminicrm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import ru.haritonenko.telegrambotminicrm.dto.LeadImportResponse;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+
+/**
+ * Bulk lead load over the COPY protocol. Rows are copied into a temp staging table, then moved into
+ * minicrm.leads by one set-based statement that normalizes phones, drops invalid or out-of-range rows, keeps
+ * the oldest row per phone, claims phones in minicrm.lead_phones and updates the daily rollups.
+ * All calls must share one transaction: the staging table lives until commit.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LeadImportRepository {
+
+    public static final String CSV_COLUMNS = "fio,phone,district,source,quantity,amount,created_at";
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE lead_import_staging (
+                fio        TEXT,
+                phone      TEXT,
+                district   TEXT,
+                source     TEXT,
+                quantity   INTEGER,
+                amount     NUMERIC,
+                created_at TIMESTAMPTZ
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COPY_STAGING =
+            "COPY pg_temp.lead_import_staging (" + CSV_COLUMNS + ") FROM STDIN WITH (FORMAT csv, HEADER true)";
+
+    /**
+     * Normalized staged rows that pass the column checks and fall within the accepted date range;
+     * the two parameters are its bounds. Shared by the range lookup and the move so both see the same rows.
+     */
+    private static final String VALID_STAGED = """
+            WITH normalized AS (
+                SELECT s.*,
+                       CASE
+                           WHEN digits = '' THEN nullif(regexp_replace(s.phone, '^[\\x01-\\x20]+|[\\x01-\\x20]+$', '', 'g'), '')
+                           WHEN length(digits) = 11 AND left(digits, 1) = '8' THEN '7' || substr(digits, 2)
+                           WHEN length(digits) = 10 THEN '7' || digits
+                           ELSE digits
+                           END AS phone_normalized
+                FROM (SELECT st.*, regexp_replace(coalesce(st.phone, ''), '[^0-9]', '', 'g') AS digits
+                      FROM pg_temp.lead_import_staging st) s
+            ), valid AS (
+                SELECT *
+                FROM normalized
+                WHERE phone_normalized IS NOT NULL
+                  AND length(trim(fio)) BETWEEN 2 AND 150
+                  AND length(phone) <= 50
+                  AND length(trim(district)) BETWEEN 1 AND 100
+                  AND length(trim(source)) BETWEEN 1 AND 100
+                  AND quantity >= 0
+                  AND amount >= 0 AND amount < 10000000000
+                  AND (created_at IS NULL OR (created_at >= ? AND created_at < ?))
+            )
+            """;
+
+    private static final String STAGED_RANGE =
+            VALID_STAGED + "SELECT MIN(created_at), MAX(created_at) FROM valid";
+
+    private static final String MOVE_STAGED = VALID_STAGED + """
+            , unique_phones AS (
+                SELECT DISTINCT ON (phone_normalized) *
+                FROM valid
+                ORDER BY phone_normalized, created_at NULLS LAST
+            ), numbered AS (
+                SELECT u.*, nextval(pg_get_serial_sequence('minicrm.leads', 'id')) AS id
+                FROM unique_phones u
+            ), claimed AS (
+                INSERT INTO minicrm.lead_phones (phone_normalized, lead_id)
+                SELECT phone_normalized, id FROM numbered
+                ON CONFLICT (phone_normalized) DO NOTHING
+                RETURNING lead_id
+            ), inserted AS (
+                INSERT INTO minicrm.leads (id, fio, phone, phone_normalized, district, source, quantity, amount, created_at)
+                SELECT n.id, trim(n.fio), n.phone, n.phone_normalized, trim(n.district), trim(n.source), n.quantity,
+                       round(n.amount, 2), coalesce(n.created_at, NOW())
+                FROM numbered n
+                JOIN claimed c ON c.lead_id = n.id
+                RETURNING created_at, district, source, quantity, amount
+            ), rollups AS (
+                INSERT INTO minicrm.lead_daily_rollups AS r (day, district, source, lead_count, quantity_sum, amount_sum)
+                SELECT (created_at AT TIME ZONE 'UTC')::date, district, source, COUNT(*), SUM(quantity), SUM(amount)
+                FROM inserted
+                GROUP BY 1, 2, 3
+                ON CONFLICT (day, district, source) DO UPDATE
+                SET lead_count   = r.lead_count + EXCLUDED.lead_count,
+                    quantity_sum = r.quantity_sum + EXCLUDED.quantity_sum,
+                    amount_sum   = r.amount_sum + EXCLUDED.amount_sum
+            )
+            SELECT (SELECT COUNT(*) FROM valid), (SELECT COUNT(*) FROM inserted)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    public long stage(InputStream csv) throws SQLException, IOException {
+        jdbcTemplate.execute(CREATE_STAGING);
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING, csv);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Earliest and latest created_at among valid staged rows dated within {@code [from, to)},
+     * or null when none of them has a date.
+     */
+    public OffsetDateTime[] stagedRange(OffsetDateTime from, OffsetDateTime to) {
+        return jdbcTemplate.queryForObject(STAGED_RANGE,
+                (rs, i) -> rs.getObject(1) == null ? null : new OffsetDateTime[]{
+                        rs.getObject(1, OffsetDateTime.class),
+                        rs.getObject(2, OffsetDateTime.class)},
+                from, to);
+    }
+
+    /**
+     * Moves valid staged rows dated within {@code [from, to)}; rows dated outside it are counted as invalid.
+     */
+    public LeadImportResponse moveStaged(long rows, OffsetDateTime from, OffsetDateTime to) {
+        return jdbcTemplate.queryForObject(MOVE_STAGED, (rs, i) -> {
+            long valid = rs.getLong(1);
+            long created = rs.getLong(2);
+            return new LeadImportResponse(rows, created, valid - created, rows - valid);
+        }, from, to);
+    }
+}
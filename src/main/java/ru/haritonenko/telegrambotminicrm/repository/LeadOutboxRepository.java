@@ -0,0 +1,44 @@
+package ru.haritonenko.telegrambotminicrm.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.haritonenko.telegrambotminicrm.model.LeadOutbox;
+import ru.haritonenko.telegrambotminicrm.model.OutboxStatus;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LeadOutboxRepository extends JpaRepository<LeadOutbox, Long> {
+    long countByStatus(OutboxStatus status);
+
+    /**
+     * Locks the oldest pending entries until the current transaction ends; entries locked by other nodes are skipped.
+     */
+    @Query(value = """
+            SELECT * FROM minicrm.lead_outbox
+            WHERE status = 'PENDING'
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<LeadOutbox> claimPending(@Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE minicrm.lead_outbox
+            SET attempts     = attempts + 1,
+                last_error   = :error,
+                status       = CASE WHEN attempts + 1 >= :maxAttempts THEN 'FAILED' ELSE status END,
+                processed_at = CASE WHEN attempts + 1 >= :maxAttempts THEN NOW() ELSE processed_at END
+            WHERE id IN (:ids) AND status = 'PENDING'
+            """, nativeQuery = true)
+    int recordFailure(@Param("ids") Collection<Long> ids,
+                      @Param("error") String error,
+                      @Param("maxAttempts") int maxAttempts);
+}
@@ -1,17 +1,51 @@
 package ru.haritonenko.telegrambotminicrm.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.haritonenko.telegrambotminicrm.model.Lead;
 
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
 public interface LeadRepository extends JpaRepository<Lead, Long> {
 
+    /**
+     * The created_at lower bound lets Postgres prune partitions older than the window.
+     */
+    List<Lead> findByCreatedAtGreaterThanEqualAndIdGreaterThanOrderByIdAsc(OffsetDateTime since, Long id, Limit limit);
+
+    List<Lead> findByCreatedAtGreaterThanEqualAndIdLessThanOrderByIdDesc(OffsetDateTime since, Long id, Limit limit);
+
+    /**
+     * Inserts the lead unless another lead already claimed its normalized phone in minicrm.lead_phones;
+     * leads without a normalized phone are always inserted.
+     */
     @Query(value = """
-        SELECT EXISTS(
-          SELECT 1 FROM minicrm.leads
-          WHERE regexp_replace(phone, '\\D', '', 'g') = regexp_replace(:phone, '\\D', '', 'g')
+        WITH lead (id, fio, phone, phone_normalized, district, source, quantity, amount) AS (
+            VALUES (nextval(pg_get_serial_sequence('minicrm.leads', 'id')), CAST(:fio AS VARCHAR), CAST(:phone AS VARCHAR),
+                    CAST(:phoneNormalized AS VARCHAR), CAST(:district AS VARCHAR), CAST(:source AS VARCHAR),
+                    CAST(:quantity AS INTEGER), CAST(:amount AS NUMERIC))
+        ), claimed AS (
+            INSERT INTO minicrm.lead_phones (phone_normalized, lead_id)
+            SELECT phone_normalized, id FROM lead WHERE phone_normalized IS NOT NULL
+            ON CONFLICT (phone_normalized) DO NOTHING
+            RETURNING lead_id
         )
+        INSERT INTO minicrm.leads (id, fio, phone, phone_normalized, district, source, quantity, amount, created_at)
+        SELECT id, fio, phone, phone_normalized, district, source, quantity, amount, NOW()
+        FROM lead
+        WHERE phone_normalized IS NULL OR id IN (SELECT lead_id FROM claimed)
+        RETURNING id
         """, nativeQuery = true)
-    boolean existsByPhoneEquivalent(@Param("phone") String phone);
+    Optional<Long> insertIfPhoneAbsent(@Param("fio") String fio,
+                                       @Param("phone") String phone,
+                                       @Param("phoneNormalized") String phoneNormalized,
+                                       @Param("district") String district,
+                                       @Param("source") String source,
+                                       @Param("quantity") Integer quantity,
+                                       @Param("amount") BigDecimal amount);
 }
@@ -0,0 +1,85 @@
+package ru.haritonenko.telegrambotminicrm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.haritonenko.telegrambotminicrm.dto.LeadStatsRow;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Daily lead totals per district and source, maintained incrementally in the
+ * transaction that inserts the leads, so stats never aggregate minicrm.leads.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LeadRollupRepository {
+
+    private static final RowMapper<LeadStatsRow> ROW_MAPPER = (rs, i) -> new LeadStatsRow(
+            rs.getString(1),
+            rs.getLong(2),
+            rs.getLong(3),
+            rs.getBigDecimal(4) != null ? rs.getBigDecimal(4) : BigDecimal.ZERO);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void addLeads(Collection<Long> leadIds) {
+        if (leadIds.isEmpty()) return;
+        Long[] ids = leadIds.toArray(Long[]::new);
+        jdbcTemplate.update("""
+                        INSERT INTO minicrm.lead_daily_rollups AS r (day, district, source, lead_count, quantity_sum, amount_sum)
+                        SELECT (created_at AT TIME ZONE 'UTC')::date, district, source, COUNT(*), SUM(quantity), SUM(amount)
+                        FROM minicrm.leads
+                        WHERE id = ANY(?)
+                        GROUP BY 1, 2, 3
+                        ON CONFLICT (day, district, source) DO UPDATE
+                        SET lead_count   = r.lead_count + EXCLUDED.lead_count,
+                            quantity_sum = r.quantity_sum + EXCLUDED.quantity_sum,
+                            amount_sum   = r.amount_sum + EXCLUDED.amount_sum
+                        """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)));
+    }
+
+    public LeadStatsRow total(LocalDate from) {
+        return jdbcTemplate.queryForObject("""
+                SELECT 'total', COALESCE(SUM(lead_count), 0), COALESCE(SUM(quantity_sum), 0), COALESCE(SUM(amount_sum), 0)
+                FROM minicrm.lead_daily_rollups
+                WHERE day >= ?
+                """, ROW_MAPPER, Date.valueOf(from));
+    }
+
+    public List<LeadStatsRow> byDistrict(LocalDate from) {
+        return jdbcTemplate.query("""
+                SELECT district, SUM(lead_count), SUM(quantity_sum), SUM(amount_sum)
+                FROM minicrm.lead_daily_rollups
+                WHERE day >= ?
+                GROUP BY district
+                ORDER BY 2 DESC, 1
+                """, ROW_MAPPER, Date.valueOf(from));
+    }
+
+    public List<LeadStatsRow> bySource(LocalDate from) {
+        return jdbcTemplate.query("""
+                SELECT source, SUM(lead_count), SUM(quantity_sum), SUM(amount_sum)
+                FROM minicrm.lead_daily_rollups
+                WHERE day >= ?
+                GROUP BY source
+                ORDER BY 2 DESC, 1
+                """, ROW_MAPPER, Date.valueOf(from));
+    }
+
+    public List<LeadStatsRow> byDay(LocalDate from) {
+        return jdbcTemplate.query("""
+                SELECT day::text, SUM(lead_count), SUM(quantity_sum), SUM(amount_sum)
+                FROM minicrm.lead_daily_rollups
+                WHERE day >= ?
+                GROUP BY day
+                ORDER BY day DESC
+                """, ROW_MAPPER, Date.valueOf(from));
+    }
+}
@@ -0,0 +1,71 @@
+package ru.haritonenko.telegrambotminicrm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.haritonenko.telegrambotminicrm.model.Lead;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lead lookup by FIO fragment, FIO with typos and phone digit fragment. Every predicate matches
+ * an expression of the pg_trgm GIN indexes in db/migration, so the planner can combine them in a bitmap scan.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LeadSearchRepository {
+
+    private static final RowMapper<Lead> LEAD_MAPPER = (rs, i) -> Lead.builder()
+            .id(rs.getLong("id"))
+            .fio(rs.getString("fio"))
+            .phone(rs.getString("phone"))
+            .phoneNormalized(rs.getString("phone_normalized"))
+            .district(rs.getString("district"))
+            .source(rs.getString("source"))
+            .quantity(rs.getInt("quantity"))
+            .amount(rs.getBigDecimal("amount"))
+            .createdAt(rs.getObject("created_at", OffsetDateTime.class))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<Lead> searchAfter(String text, String digits, long afterId, int limit) {
+        return search(text, digits, "id > ?", "id ASC", afterId, limit);
+    }
+
+    public List<Lead> searchBefore(String text, String digits, long beforeId, int limit) {
+        return search(text, digits, "id < ?", "id DESC", beforeId, limit);
+    }
+
+    private List<Lead> search(String text, String digits, String keyset, String order, long boundaryId, int limit) {
+        List<String> matches = new ArrayList<>(3);
+        List<Object> args = new ArrayList<>(5);
+        if (text != null) {
+            matches.add("lower(fio) LIKE lower(?)");
+            args.add("%" + escapeLike(text) + "%");
+            matches.add("lower(?) <% lower(fio)");
+            args.add(text);
+        }
+        if (digits != null) {
+            matches.add("phone_normalized::text LIKE ?");
+            args.add("%" + digits + "%");
+        }
+        if (matches.isEmpty()) return List.of();
+        args.add(boundaryId);
+        args.add(limit);
+
+        String sql = "SELECT id, fio, phone, phone_normalized, district, source, quantity, amount, created_at"
+                + " FROM minicrm.leads"
+                + " WHERE (" + String.join(" OR ", matches) + ") AND " + keyset
+                + " ORDER BY " + order
+                + " LIMIT ?";
+        return jdbcTemplate.query(sql, LEAD_MAPPER, args.toArray());
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
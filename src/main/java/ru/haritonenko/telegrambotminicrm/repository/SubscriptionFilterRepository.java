@@ -0,0 +1,55 @@
+package ru.haritonenko.telegrambotminicrm.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.haritonenko.telegrambotminicrm.model.SubscriptionFilter;
+import ru.haritonenko.telegrambotminicrm.model.SubscriptionFilterKind;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class SubscriptionFilterRepository {
+
+    private static final RowMapper<SubscriptionFilter> ROW_MAPPER = (rs, i) -> new SubscriptionFilter(
+            rs.getLong("chat_id"),
+            SubscriptionFilterKind.valueOf(rs.getString("kind")),
+            rs.getString("value"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<SubscriptionFilter> findAll() {
+        return jdbcTemplate.query("SELECT chat_id, kind, value FROM minicrm.tg_user_filters", ROW_MAPPER);
+    }
+
+    public List<SubscriptionFilter> findByChatId(long chatId) {
+        return jdbcTemplate.query("""
+                SELECT chat_id, kind, value FROM minicrm.tg_user_filters
+                WHERE chat_id = ?
+                ORDER BY kind, lower(value)
+                """, ROW_MAPPER, chatId);
+    }
+
+    /**
+     * Returns false when the chat already has an equal (case-insensitive) filter.
+     */
+    public boolean add(SubscriptionFilter filter) {
+        return jdbcTemplate.update("""
+                INSERT INTO minicrm.tg_user_filters (chat_id, kind, value) VALUES (?, ?, ?)
+                ON CONFLICT DO NOTHING
+                """, filter.chatId(), filter.kind().name(), filter.value()) == 1;
+    }
+
+    public boolean remove(SubscriptionFilter filter) {
+        return jdbcTemplate.update("""
+                DELETE FROM minicrm.tg_user_filters
+                WHERE chat_id = ? AND kind = ? AND lower(value) = lower(?)
+                """, filter.chatId(), filter.kind().name(), filter.value()) > 0;
+    }
+
+    public int removeAll(long chatId) {
+        return jdbcTemplate.update("DELETE FROM minicrm.tg_user_filters WHERE chat_id = ?", chatId);
+    }
+}
@@ -1,11 +1,15 @@
 package ru.haritonenko.telegrambotminicrm.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.haritonenko.telegrambotminicrm.model.User;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,7 +17,13 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByChatId(Long chatId);
     List<User> findByNotifyTrue();
-    Page<User> findByNotifyTrue(Pageable pageable);
+    @Query("select u.chatId from User u where u.notify = true")
+    List<Long> findNotifyChatIds();
+    List<User> findByNotifyTrueAndIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+    List<User> findByNotifyTrueAndIdLessThanOrderByIdDesc(Long id, Limit limit);
     Optional<User> findByUsernameIgnoreCase(String username);
-    Optional<User> findByPhone(String phone);
+    Optional<User> findFirstByPhoneNormalized(String phoneNormalized);
+    @Modifying
+    @Query("update User u set u.notify = false, u.updatedAt = :now where u.chatId in :chatIds and u.notify = true")
+    int disableNotify(@Param("chatIds") Collection<Long> chatIds, @Param("now") OffsetDateTime now);
 }
@@ -0,0 +1,192 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+import ru.haritonenko.telegrambotminicrm.metrics.BotMetrics;
+import ru.haritonenko.telegrambotminicrm.util.TokenBucket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel fan-out of one message to many chats on virtual threads.
+ * Sends are paced by a global token bucket and a per-chat minimum interval,
+ * and a 429 with retry_after pauses every sender until the ban is over.
+ * The outcome for every chat is reported to a {@link DeliveryListener} as soon as it is known.
+ */
+@Component
+@Slf4j
+public class BroadcastEngine {
+
+    private static final int FORBIDDEN = 403;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final TelegramClient telegramClient;
+    private final BotMetrics botMetrics;
+    private final TokenBucket globalBucket;
+    private final Semaphore inFlight;
+    private final long perChatIntervalNanos;
+    private final int maxAttempts;
+    private final ConcurrentHashMap<Long, AtomicLong> chatNextSlot = new ConcurrentHashMap<>();
+    private final AtomicLong pausedUntil = new AtomicLong(System.nanoTime());
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public BroadcastEngine(TelegramClient telegramClient,
+                           BotMetrics botMetrics,
+                           @Value("${app.broadcast.messages-per-second:25}") int messagesPerSecond,
+                           @Value("${app.broadcast.per-chat-interval-ms:1000}") long perChatIntervalMs,
+                           @Value("${app.broadcast.max-in-flight:50}") int maxInFlight,
+                           @Value("${app.broadcast.max-attempts:5}") int maxAttempts) {
+        this.telegramClient = telegramClient;
+        this.botMetrics = botMetrics;
+        this.globalBucket = new TokenBucket(messagesPerSecond, messagesPerSecond);
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.perChatIntervalNanos = TimeUnit.MILLISECONDS.toNanos(perChatIntervalMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public record BroadcastResult(int sent, int failed) {
+    }
+
+    public enum Outcome {
+        SENT,
+        /**
+         * 403: the user blocked the bot or left the chat; sending again is pointless.
+         */
+        BLOCKED,
+        /**
+         * Rate limiting, server or network errors that outlasted the in-place retries.
+         */
+        RETRYABLE,
+        FAILED
+    }
+
+    @FunctionalInterface
+    public interface DeliveryListener {
+        /**
+         * Called from the sending virtual threads, concurrently for different chats.
+         */
+        void onResult(long chatId, Outcome outcome, String error);
+    }
+
+    public BroadcastResult broadcast(long[] chatIds, String text, DeliveryListener listener) {
+        long started = System.nanoTime();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(chatIds.length);
+        for (long chatId : chatIds) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            futures.add(CompletableFuture
+                    .supplyAsync(() -> deliver(chatId, text, listener), executor)
+                    .whenComplete((ok, ex) -> inFlight.release()));
+        }
+
+        int sent = 0;
+        for (CompletableFuture<Boolean> f : futures) {
+            if (Boolean.TRUE.equals(f.exceptionally(ex -> false).join())) sent++;
+        }
+        evictIdleChats();
+        botMetrics.recordBroadcast(System.nanoTime() - started, chatIds.length);
+        return new BroadcastResult(sent, chatIds.length - sent);
+    }
+
+    private boolean deliver(long chatId, String text, DeliveryListener listener) {
+        SendMessage message = SendMessage.builder()
+                .chatId(String.valueOf(chatId))
+                .text(text)
+                .build();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                awaitPermit(chatId);
+                botMetrics.telegramCall("sendMessage", () -> telegramClient.execute(message));
+                log.debug("Broadcast message sent to chatId={}", chatId);
+                return report(listener, chatId, Outcome.SENT, null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return report(listener, chatId, Outcome.RETRYABLE, "interrupted");
+            } catch (TelegramApiRequestException e) {
+                long backoffSeconds = retryAfterSeconds(e);
+                if (backoffSeconds > 0 && attempt < maxAttempts) {
+                    log.warn("Telegram asked to slow down (code={}), retrying chatId={} in {}s",
+                            e.getErrorCode(), chatId, backoffSeconds);
+                    pauseFor(backoffSeconds);
+                    continue;
+                }
+                if (e.getErrorCode() != null && e.getErrorCode() == FORBIDDEN) {
+                    log.warn("Bot is blocked by chatId={}: {}", chatId, e.getApiResponse());
+                    return report(listener, chatId, Outcome.BLOCKED, e.getApiResponse());
+                }
+                log.error("Error sending broadcast to chatId={}", chatId, e);
+                return report(listener, chatId, backoffSeconds > 0 ? Outcome.RETRYABLE : Outcome.FAILED, e.getMessage());
+            } catch (TelegramApiException e) {
+                log.error("Error sending broadcast to chatId={}", chatId, e);
+                return report(listener, chatId, Outcome.RETRYABLE, e.getMessage());
+            }
+        }
+    }
+
+    private static boolean report(DeliveryListener listener, long chatId, Outcome outcome, String error) {
+        try {
+            listener.onResult(chatId, outcome, error);
+        } catch (RuntimeException e) {
+            log.error("Delivery listener failed for chatId={}", chatId, e);
+        }
+        return outcome == Outcome.SENT;
+    }
+
+    private long retryAfterSeconds(TelegramApiRequestException e) {
+        Integer code = e.getErrorCode();
+        if (code == null) return 0;
+        if (code == TOO_MANY_REQUESTS) {
+            Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+            return retryAfter != null && retryAfter > 0 ? retryAfter : 1;
+        }
+        return code >= 500 ? 1 : 0;
+    }
+
+    private void pauseFor(long seconds) {
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        pausedUntil.accumulateAndGet(until, Math::max);
+    }
+
+    private void awaitPermit(long chatId) throws InterruptedException {
+        long pause = pausedUntil.get() - System.nanoTime();
+        if (pause > 0) TimeUnit.NANOSECONDS.sleep(pause);
+
+        globalBucket.acquire();
+
+        if (perChatIntervalNanos > 0) {
+            long now = System.nanoTime();
+            long slot = chatNextSlot.computeIfAbsent(chatId, id -> new AtomicLong(now))
+                    .getAndAccumulate(now, (prev, n) -> Math.max(prev, n) + perChatIntervalNanos);
+            long wait = slot - now;
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private void evictIdleChats() {
+        long now = System.nanoTime();
+        chatNextSlot.values().removeIf(slot -> slot.get() - now < 0);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
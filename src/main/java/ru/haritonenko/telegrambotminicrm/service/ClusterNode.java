@@ -0,0 +1,178 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Cluster membership coordinated through Postgres only. The node that holds a session-level advisory lock is the
+ * leader; the lock lives on a dedicated connection outside the pool, so it is released by the server as soon as
+ * the leader's session dies and a standby takes over on its next check. Every node also reloads the subscriber
+ * registry and drops its user cache periodically, since user and subscription changes are only applied in memory
+ * on the node that made them.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cluster.enabled", havingValue = "true")
+@Slf4j
+public class ClusterNode {
+
+    /**
+     * Work that only the leader may do, e.g. long-polling getUpdates. Called from the scheduler thread.
+     */
+    public interface LeadershipListener {
+        void onLeadershipGranted();
+
+        void onLeadershipRevoked();
+    }
+
+    private static final String LEADER_LOCK_KEY = "minicrm.bot.leader";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    /**
+     * Bounds both sides of a silent network split. The leader validates its session on every check with a short
+     * timeout and steps down once that fails, and no call on the session hangs past the socket timeout. The server
+     * drops the session, and with it the lock, once its keepalive probes go unanswered (idle + interval * count,
+     * 30 seconds), so the old leader has stopped before a standby can take the lock.
+     */
+    private static final int SOCKET_TIMEOUT_SECONDS = 10;
+    private static final int CONNECT_TIMEOUT_SECONDS = 5;
+    private static final String SERVER_KEEPALIVES =
+            "-c tcp_keepalives_idle=15 -c tcp_keepalives_interval=5 -c tcp_keepalives_count=3";
+
+    private final DataSourceProperties dataSourceProperties;
+    private final List<LeadershipListener> listeners;
+    private final SubscriberRegistry subscriberRegistry;
+    private final UserService userService;
+    /**
+     * Only touched from the scheduled check, which never runs concurrently with itself.
+     */
+    private Connection lockConnection;
+    private volatile boolean leader;
+
+    public ClusterNode(DataSourceProperties dataSourceProperties,
+                       ObjectProvider<LeadershipListener> listeners,
+                       SubscriberRegistry subscriberRegistry,
+                       UserService userService) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.listeners = listeners.orderedStream().toList();
+        this.subscriberRegistry = subscriberRegistry;
+        this.userService = userService;
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cluster.leader-check-ms:2000}")
+    public void checkLeadership() {
+        try {
+            if (leader) {
+                if (lockConnection.isValid(VALIDATION_TIMEOUT_SECONDS)) return;
+                log.warn("Leader lock connection is gone, stepping down");
+                revoke();
+            }
+            if (tryAcquire()) grant();
+        } catch (SQLException e) {
+            log.warn("Leader election check failed: {}", e.getMessage());
+            if (leader) revoke();
+            closeLockConnection();
+        }
+    }
+
+    private boolean tryAcquire() throws SQLException {
+        if (lockConnection == null || !lockConnection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+            closeLockConnection();
+            lockConnection = DriverManager.getConnection(dataSourceProperties.determineUrl(), lockConnectionProperties());
+        }
+        try (PreparedStatement ps = lockConnection.prepareStatement("SELECT pg_try_advisory_lock(hashtext(?))")) {
+            ps.setString(1, LEADER_LOCK_KEY);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private Properties lockConnectionProperties() {
+        Properties properties = new Properties();
+        if (dataSourceProperties.determineUsername() != null) {
+            properties.setProperty("user", dataSourceProperties.determineUsername());
+        }
+        if (dataSourceProperties.determinePassword() != null) {
+            properties.setProperty("password", dataSourceProperties.determinePassword());
+        }
+        properties.setProperty("tcpKeepAlive", "true");
+        properties.setProperty("socketTimeout", String.valueOf(SOCKET_TIMEOUT_SECONDS));
+        properties.setProperty("connectTimeout", String.valueOf(CONNECT_TIMEOUT_SECONDS));
+        properties.setProperty("options", SERVER_KEEPALIVES);
+        properties.setProperty("ApplicationName", "minicrm-leader-lock");
+        return properties;
+    }
+
+    /**
+     * A leader whose listeners did not all start would hold the lock without doing the leader's work, so a failed
+     * listener hands leadership back: everything is stopped, the lock is released by closing its session and the
+     * next check competes again.
+     */
+    private void grant() {
+        leader = true;
+        log.info("This node is now the cluster leader");
+        for (LeadershipListener listener : listeners) {
+            try {
+                listener.onLeadershipGranted();
+            } catch (RuntimeException e) {
+                log.error("Leadership listener {} failed to start, stepping down", listener.getClass().getSimpleName(), e);
+                revoke();
+                closeLockConnection();
+                return;
+            }
+        }
+    }
+
+    private void revoke() {
+        leader = false;
+        log.info("This node is no longer the cluster leader");
+        for (LeadershipListener listener : listeners) {
+            try {
+                listener.onLeadershipRevoked();
+            } catch (RuntimeException e) {
+                log.error("Leadership listener {} failed to stop", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cluster.registry-refresh-ms:10000}")
+    public void refreshRegistry() {
+        subscriberRegistry.reload();
+        userService.invalidateCache();
+    }
+
+    private void closeLockConnection() {
+        if (lockConnection == null) return;
+        try {
+            lockConnection.close();
+        } catch (SQLException e) {
+            log.debug("Error closing leader lock connection", e);
+        }
+        lockConnection = null;
+    }
+
+    /**
+     * Closing the session releases the lock right away, so a standby does not have to wait for a timeout.
+     */
+    @PreDestroy
+    void shutdown() {
+        if (leader) revoke();
+        closeLockConnection();
+    }
+}
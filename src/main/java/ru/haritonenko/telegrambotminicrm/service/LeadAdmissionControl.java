@@ -0,0 +1,123 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.haritonenko.telegrambotminicrm.model.OutboxStatus;
+import ru.haritonenko.telegrambotminicrm.repository.LeadDeliveryRepository;
+import ru.haritonenko.telegrambotminicrm.repository.LeadOutboxRepository;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fail-fast gate for lead API calls. A request is turned away when too many are already in flight, when the
+ * connection pool is nearly exhausted or has waiters, or when notifications are backed up,
+ * so overload turns into quick 503/429 answers instead of threads blocked on the pool.
+ * The backlog (outbox rows not yet fanned out plus due sends in the delivery ledger) is sampled
+ * on a schedule to keep the check itself free of DB work.
+ */
+@Component
+@Slf4j
+public class LeadAdmissionControl {
+
+    public record Rejection(HttpStatus status, long retryAfterSeconds, String reason) {
+    }
+
+    private final LeadOutboxRepository outboxRepository;
+    private final LeadDeliveryRepository deliveryRepository;
+    private final MeterRegistry meterRegistry;
+    private final HikariDataSource hikari;
+    private final Semaphore inFlight;
+    private final int maxConcurrent;
+    private final double maxPoolUtilization;
+    private final int maxPoolWaiting;
+    private final long maxBacklog;
+    private final long retryAfterSeconds;
+    private final long backlogRetryAfterSeconds;
+    private volatile long backlog;
+
+    public LeadAdmissionControl(LeadOutboxRepository outboxRepository,
+                                LeadDeliveryRepository deliveryRepository,
+                                MeterRegistry meterRegistry,
+                                DataSource dataSource,
+                                @Value("${app.admission.max-concurrent:32}") int maxConcurrent,
+                                @Value("${app.admission.max-pool-utilization:0.9}") double maxPoolUtilization,
+                                @Value("${app.admission.max-pool-waiting:5}") int maxPoolWaiting,
+                                @Value("${app.admission.max-backlog:10000}") long maxBacklog,
+                                @Value("${app.admission.retry-after-seconds:1}") long retryAfterSeconds,
+                                @Value("${app.admission.backlog-retry-after-seconds:10}") long backlogRetryAfterSeconds) {
+        this.outboxRepository = outboxRepository;
+        this.deliveryRepository = deliveryRepository;
+        this.meterRegistry = meterRegistry;
+        this.hikari = dataSource instanceof HikariDataSource h ? h : null;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.inFlight = new Semaphore(this.maxConcurrent);
+        this.maxPoolUtilization = maxPoolUtilization;
+        this.maxPoolWaiting = maxPoolWaiting;
+        this.maxBacklog = maxBacklog;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.backlogRetryAfterSeconds = backlogRetryAfterSeconds;
+
+        if (hikari == null) {
+            log.warn("DataSource is not Hikari, pool-based admission checks are disabled");
+        }
+        limitGauge("in_flight", this.maxConcurrent);
+        limitGauge("pool_utilization", maxPoolUtilization);
+        limitGauge("pool_waiting", maxPoolWaiting);
+        limitGauge("backlog", maxBacklog);
+        Gauge.builder("leads.admission.in_flight", inFlight, s -> this.maxConcurrent - s.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("leads.admission.backlog", this, c -> c.backlog).register(meterRegistry);
+    }
+
+    private void limitGauge(String name, double value) {
+        Gauge.builder("leads.admission.limit", () -> value).tag("limit", name).register(meterRegistry);
+    }
+
+    /**
+     * Returns null when the request is admitted; the caller must then call {@link #release()} once it is done.
+     */
+    public Rejection tryAdmit() {
+        if (!inFlight.tryAcquire()) {
+            return reject("in_flight", HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds, "Too many concurrent lead requests");
+        }
+
+        HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+        if (pool != null) {
+            int max = hikari.getMaximumPoolSize();
+            if (pool.getThreadsAwaitingConnection() > maxPoolWaiting
+                    || (double) pool.getActiveConnections() / max >= maxPoolUtilization) {
+                inFlight.release();
+                return reject("pool", HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds, "Database is busy");
+            }
+        }
+
+        if (backlog >= maxBacklog) {
+            inFlight.release();
+            return reject("backlog", HttpStatus.TOO_MANY_REQUESTS, backlogRetryAfterSeconds, "Notification backlog is full");
+        }
+        return null;
+    }
+
+    public void release() {
+        inFlight.release();
+    }
+
+    private Rejection reject(String reason, HttpStatus status, long retryAfter, String message) {
+        meterRegistry.counter("leads.admission.rejected", "reason", reason).increment();
+        log.debug("Lead request rejected: {}", reason);
+        return new Rejection(status, retryAfter, message);
+    }
+
+    @Scheduled(fixedDelayString = "${app.admission.backlog-refresh-ms:1000}")
+    public void refreshBacklog() {
+        backlog = outboxRepository.countByStatus(OutboxStatus.PENDING) + deliveryRepository.countDue();
+    }
+}
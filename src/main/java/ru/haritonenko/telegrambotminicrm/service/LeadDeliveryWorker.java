@@ -0,0 +1,241 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.haritonenko.telegrambotminicrm.metrics.BotMetrics;
+import ru.haritonenko.telegrambotminicrm.model.DeliveryStatus;
+import ru.haritonenko.telegrambotminicrm.model.Lead;
+import ru.haritonenko.telegrambotminicrm.model.LeadDelivery;
+import ru.haritonenko.telegrambotminicrm.repository.LeadDeliveryRepository;
+import ru.haritonenko.telegrambotminicrm.repository.LeadDeliveryRepository.Update;
+import ru.haritonenko.telegrambotminicrm.repository.LeadRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sends due rows of the delivery ledger. Rows are claimed under a lease, so any number of nodes can share the
+ * work and a dead node's rows come back once the lease runs out. While a run is sending, the lease of its unsettled
+ * rows is renewed every third of the lease, so a long fan-out is not picked up by a second node. Chats that carry
+ * the same leads share one rendered text and one fan-out per message part; every outcome goes back to the ledger in JDBC batches of
+ * {@code flush-size}, so after a restart only chats and parts that were not recorded yet are sent again.
+ * Failures are retried with exponential backoff, and chats answering 403 are unsubscribed.
+ */
+@Component
+@Slf4j
+public class LeadDeliveryWorker {
+
+    private final LeadDeliveryRepository deliveryRepository;
+    private final LeadRepository leadRepository;
+    private final BroadcastEngine broadcastEngine;
+    private final UserService userService;
+    private final BotMetrics botMetrics;
+    private final TaskScheduler taskScheduler;
+    private final int batchSize;
+    private final int flushSize;
+    private final int maxAttempts;
+    private final Duration backoffBase;
+    private final Duration backoffMax;
+    private final Duration retention;
+    private final Duration lease;
+
+    public LeadDeliveryWorker(LeadDeliveryRepository deliveryRepository,
+                              LeadRepository leadRepository,
+                              BroadcastEngine broadcastEngine,
+                              UserService userService,
+                              BotMetrics botMetrics,
+                              TaskScheduler taskScheduler,
+                              @Value("${app.delivery.batch-size:5000}") int batchSize,
+                              @Value("${app.delivery.flush-size:200}") int flushSize,
+                              @Value("${app.delivery.max-attempts:8}") int maxAttempts,
+                              @Value("${app.delivery.backoff-base:5s}") Duration backoffBase,
+                              @Value("${app.delivery.backoff-max:30m}") Duration backoffMax,
+                              @Value("${app.delivery.retention:7d}") Duration retention,
+                              @Value("${app.delivery.lease:30s}") Duration lease) {
+        this.deliveryRepository = deliveryRepository;
+        this.leadRepository = leadRepository;
+        this.broadcastEngine = broadcastEngine;
+        this.userService = userService;
+        this.botMetrics = botMetrics;
+        this.taskScheduler = taskScheduler;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushSize = Math.max(1, flushSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffBase = backoffBase;
+        this.backoffMax = backoffMax;
+        this.retention = retention;
+        this.lease = lease;
+    }
+
+    /**
+     * Buffer of ledger updates filled from the sending threads; full buffers are written by whoever filled them.
+     * Rows stay active, and keep their lease renewed, until an update settles their next attempt.
+     */
+    private final class Ledger {
+        private final List<Update> buffer = new ArrayList<>();
+        private final Set<Long> blocked = ConcurrentHashMap.newKeySet();
+        private final Set<LeadDelivery> active = ConcurrentHashMap.newKeySet();
+
+        Ledger(List<LeadDelivery> claimed) {
+            active.addAll(claimed);
+        }
+
+        void add(Update update) {
+            if (update.nextAttemptAt() != null) active.remove(update.delivery());
+            List<Update> full = null;
+            synchronized (this) {
+                buffer.add(update);
+                if (buffer.size() >= flushSize) {
+                    full = new ArrayList<>(buffer);
+                    buffer.clear();
+                }
+            }
+            if (full != null) deliveryRepository.applyAll(full);
+        }
+
+        void flush() {
+            List<Update> rest;
+            synchronized (this) {
+                rest = new ArrayList<>(buffer);
+                buffer.clear();
+            }
+            deliveryRepository.applyAll(rest);
+        }
+
+        void renewLease() {
+            try {
+                deliveryRepository.extendLease(List.copyOf(active), lease);
+            } catch (RuntimeException e) {
+                log.warn("Could not renew the delivery lease of {} rows: {}", active.size(), e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.delivery.poll-interval-ms:1000}")
+    public void deliverDue() {
+        List<LeadDelivery> due = deliveryRepository.claimDue(batchSize, lease);
+        if (due.isEmpty()) return;
+
+        List<Long> leadIds = due.stream()
+                .flatMap(d -> Arrays.stream(d.leadIds()))
+                .distinct()
+                .toList();
+        Map<Long, Lead> leads = leadRepository.findAllById(leadIds).stream()
+                .collect(Collectors.toMap(Lead::getId, Function.identity()));
+        Map<List<Long>, List<LeadDelivery>> byLeads = due.stream()
+                .collect(Collectors.groupingBy(d -> List.of(d.leadIds()), LinkedHashMap::new, Collectors.toList()));
+
+        Ledger ledger = new Ledger(due);
+        Duration renewEvery = lease.dividedBy(3);
+        ScheduledFuture<?> renewal = taskScheduler.scheduleAtFixedRate(
+                ledger::renewLease, Instant.now().plus(renewEvery), renewEvery);
+        try {
+            byLeads.forEach((ids, deliveries) -> {
+                List<Lead> found = ids.stream().map(leads::get).filter(Objects::nonNull).toList();
+                if (found.isEmpty()) {
+                    deliveries.forEach(d -> ledger.add(new Update(
+                            d, DeliveryStatus.FAILED, d.partsSent(), d.attempts(), OffsetDateTime.now(), "Leads no longer exist")));
+                    return;
+                }
+                deliver(deliveries, NotificationService.render(found), ledger);
+            });
+            ledger.flush();
+        } finally {
+            renewal.cancel(false);
+        }
+
+        if (!ledger.blocked.isEmpty()) {
+            userService.unsubscribeAll(ledger.blocked);
+            deliveryRepository.blockPending(ledger.blocked);
+        }
+        log.info("Delivered {} ledger rows in {} groups, {} chats blocked the bot",
+                due.size(), byLeads.size(), ledger.blocked.size());
+    }
+
+    /**
+     * Parts go out in order; a chat only gets part p + 1 once part p was sent to it.
+     */
+    private void deliver(List<LeadDelivery> deliveries, List<String> parts, Ledger ledger) {
+        Map<Long, LeadDelivery> byChat = new ConcurrentHashMap<>();
+        Map<Long, Integer> progress = new ConcurrentHashMap<>();
+        for (LeadDelivery d : deliveries) {
+            if (d.partsSent() >= parts.size()) {
+                ledger.add(new Update(d, DeliveryStatus.SENT, d.partsSent(), d.attempts(), OffsetDateTime.now(), null));
+                continue;
+            }
+            byChat.put(d.chatId(), d);
+            progress.put(d.chatId(), d.partsSent());
+        }
+
+        for (int part = 0; part < parts.size(); part++) {
+            int current = part;
+            long[] chatIds = progress.entrySet().stream()
+                    .filter(e -> e.getValue() == current)
+                    .mapToLong(Map.Entry::getKey)
+                    .toArray();
+            if (chatIds.length == 0) continue;
+
+            boolean last = current == parts.size() - 1;
+            broadcastEngine.broadcast(chatIds, parts.get(current), (chatId, outcome, error) -> {
+                LeadDelivery d = byChat.get(chatId);
+                botMetrics.recordDelivery(outcome.name().toLowerCase());
+                if (outcome == BroadcastEngine.Outcome.SENT) {
+                    progress.put(chatId, current + 1);
+                    ledger.add(new Update(d, last ? DeliveryStatus.SENT : DeliveryStatus.PENDING,
+                            current + 1, d.attempts(), null, null));
+                    return;
+                }
+                progress.remove(chatId);
+                switch (outcome) {
+                    case BLOCKED -> {
+                        ledger.blocked.add(chatId);
+                        ledger.add(new Update(d, DeliveryStatus.BLOCKED, current, d.attempts() + 1, OffsetDateTime.now(), error));
+                    }
+                    case RETRYABLE -> ledger.add(retry(d, current, error));
+                    default -> ledger.add(new Update(d, DeliveryStatus.FAILED, current, d.attempts() + 1, OffsetDateTime.now(), error));
+                }
+            });
+        }
+    }
+
+    private Update retry(LeadDelivery d, int partsSent, String error) {
+        int attempts = d.attempts() + 1;
+        if (attempts >= maxAttempts) {
+            log.warn("Giving up on outbox #{} for chatId={} after {} attempts", d.outboxId(), d.chatId(), attempts);
+            return new Update(d, DeliveryStatus.FAILED, partsSent, attempts, OffsetDateTime.now(), error);
+        }
+        return new Update(d, DeliveryStatus.PENDING, partsSent, attempts,
+                OffsetDateTime.now().plus(backoff(backoffBase, backoffMax, attempts)), error);
+    }
+
+    /**
+     * base * 2^(attempts - 1), capped, with the upper half randomized so retries of one fan-out spread out.
+     */
+    static Duration backoff(Duration base, Duration max, int attempts) {
+        long delay = Math.min(max.toMillis(), base.toMillis() << Math.min(attempts - 1, 20));
+        long half = delay / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+
+    @Scheduled(cron = "${app.delivery.purge-cron:0 30 3 * * *}", zone = "UTC")
+    public void purgeFinished() {
+        int deleted = deliveryRepository.deleteFinishedBefore(OffsetDateTime.now().minus(retention));
+        log.info("Purged {} finished delivery ledger rows", deleted);
+    }
+}
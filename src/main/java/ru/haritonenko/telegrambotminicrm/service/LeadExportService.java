@@ -0,0 +1,156 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+import ru.haritonenko.telegrambotminicrm.dto.LeadExportFilter;
+import ru.haritonenko.telegrambotminicrm.metrics.BotMetrics;
+import ru.haritonenko.telegrambotminicrm.repository.LeadExportRepository;
+import ru.haritonenko.telegrambotminicrm.util.CsvWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams leads as CSV row by row, so memory use does not depend on the export size.
+ * Bot exports are spooled to a temp file on a virtual thread and uploaded as a document.
+ */
+@Service
+@Slf4j
+public class LeadExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long TELEGRAM_MAX_DOCUMENT_BYTES = 50L * 1024 * 1024;
+    private static final String[] HEADER = {"id", "fio", "phone", "district", "source", "quantity", "amount", "created_at"};
+
+    private final LeadExportRepository leadExportRepository;
+    private final TelegramClient telegramClient;
+    private final MessageGateway messageGateway;
+    private final BotMetrics botMetrics;
+    private final int fetchSize;
+    private final Semaphore running;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public LeadExportService(LeadExportRepository leadExportRepository,
+                             TelegramClient telegramClient,
+                             MessageGateway messageGateway,
+                             BotMetrics botMetrics,
+                             @Value("${app.export.fetch-size:1000}") int fetchSize,
+                             @Value("${app.export.max-concurrent:2}") int maxConcurrent) {
+        this.leadExportRepository = leadExportRepository;
+        this.telegramClient = telegramClient;
+        this.messageGateway = messageGateway;
+        this.botMetrics = botMetrics;
+        this.fetchSize = Math.max(1, fetchSize);
+        this.running = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    /**
+     * Takes one of the app.export.max-concurrent slots; every export holds a pooled connection on an open cursor
+     * for its whole run. Returns false when all slots are taken, otherwise the caller must {@link #releaseSlot()}.
+     */
+    public boolean tryAcquireSlot() {
+        return running.tryAcquire();
+    }
+
+    public void releaseSlot() {
+        running.release();
+    }
+
+    public static String fileName(boolean gzip) {
+        return gzip ? "leads.csv.gz" : "leads.csv";
+    }
+
+    public long writeCsv(LeadExportFilter filter, OutputStream target, boolean gzip) throws IOException {
+        OutputStream out = gzip ? new GZIPOutputStream(target, BUFFER_SIZE) : target;
+        long[] rows = new long[1];
+        try (CsvWriter csv = new CsvWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE))) {
+            csv.writeRow(HEADER);
+            leadExportRepository.stream(filter, fetchSize, rs -> {
+                try {
+                    csv.writeRow(
+                            rs.getString(1),
+                            rs.getString(2),
+                            rs.getString(3),
+                            rs.getString(4),
+                            rs.getString(5),
+                            rs.getString(6),
+                            rs.getString(7),
+                            rs.getString(8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    /**
+     * Returns false when the export limit is reached and nothing was started.
+     */
+    public boolean exportToChat(Long chatId, LeadExportFilter filter, boolean gzip) {
+        if (!tryAcquireSlot()) return false;
+        executor.execute(() -> {
+            Path file = null;
+            try {
+                file = Files.createTempFile("leads-export-", gzip ? ".csv.gz" : ".csv");
+                long rows;
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    rows = writeCsv(filter, out, gzip);
+                }
+                long bytes = Files.size(file);
+                if (bytes > TELEGRAM_MAX_DOCUMENT_BYTES) {
+                    messageGateway.send(chatId, "Выгрузка слишком большая для Telegram (" + bytes / (1024 * 1024)
+                            + " МБ). Сузьте фильтр, добавьте gzip или используйте GET /api/leads/export.");
+                    log.warn("Export for chatId={} is too large to upload: {} bytes", chatId, bytes);
+                    return;
+                }
+                SendDocument document = SendDocument.builder()
+                        .chatId(chatId.toString())
+                        .document(new InputFile(file.toFile(), fileName(gzip)))
+                        .caption("Выгрузка заявок: " + rows + " шт.")
+                        .build();
+                botMetrics.telegramCall("sendDocument", () -> telegramClient.execute(document));
+                log.info("Export of {} leads ({} bytes) sent to chatId={}", rows, bytes, chatId);
+            } catch (Exception e) {
+                log.error("Lead export failed for chatId={}", chatId, e);
+                messageGateway.send(chatId, "Не удалось выгрузить заявки: " + e.getMessage());
+            } finally {
+                releaseSlot();
+                deleteQuietly(file);
+            }
+        });
+        return true;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete export file {}", file, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
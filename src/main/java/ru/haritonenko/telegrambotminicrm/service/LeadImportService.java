@@ -0,0 +1,52 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.haritonenko.telegrambotminicrm.dto.LeadImportResponse;
+import ru.haritonenko.telegrambotminicrm.metrics.BotMetrics;
+import ru.haritonenko.telegrambotminicrm.repository.LeadImportRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * Historical lead import. Imported leads are not written to the outbox, so subscribers are not notified.
+ * Partitions for the dates of the valid staged rows are created in their own transaction before the rows are moved;
+ * rows dated outside {@link LeadPartitionManager#importRange()} are rejected as invalid.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LeadImportService {
+
+    private final LeadImportRepository leadImportRepository;
+    private final LeadPartitionManager partitionManager;
+    private final BotMetrics botMetrics;
+
+    @Transactional(rollbackFor = Exception.class)
+    public LeadImportResponse importCsv(InputStream csv) throws SQLException, IOException {
+        long started = System.nanoTime();
+        long rows = leadImportRepository.stage(csv);
+        OffsetDateTime[] accepted = partitionManager.importRange();
+        OffsetDateTime[] range = leadImportRepository.stagedRange(accepted[0], accepted[1]);
+        if (range != null) {
+            partitionManager.ensurePartitions(
+                    YearMonth.from(range[0].atZoneSameInstant(ZoneOffset.UTC)),
+                    YearMonth.from(range[1].atZoneSameInstant(ZoneOffset.UTC)));
+        }
+        LeadImportResponse result = leadImportRepository.moveStaged(rows, accepted[0], accepted[1]);
+        long elapsed = System.nanoTime() - started;
+
+        botMetrics.recordLeadResults(result.created(), result.duplicates(), result.invalid());
+        botMetrics.recordLeadIngest("import", elapsed);
+        log.info("Lead import finished: rows={}, created={}, duplicates={}, invalid={} in {} ms",
+                result.rows(), result.created(), result.duplicates(), result.invalid(), elapsed / 1_000_000);
+        return result;
+    }
+}
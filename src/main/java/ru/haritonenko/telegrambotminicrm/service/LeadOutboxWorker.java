@@ -0,0 +1,136 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.haritonenko.telegrambotminicrm.model.Lead;
+import ru.haritonenko.telegrambotminicrm.model.LeadOutbox;
+import ru.haritonenko.telegrambotminicrm.model.OutboxStatus;
+import ru.haritonenko.telegrambotminicrm.repository.LeadOutboxRepository;
+import ru.haritonenko.telegrambotminicrm.repository.LeadRepository;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Dispatches pending outbox entries: their leads are written to the delivery ledger for every matching subscriber
+ * in the same transaction that marks the entries done, and {@link LeadDeliveryWorker} sends them from there.
+ * In {@code immediate} mode every entry is dispatched as soon as it is seen; in {@code digest} mode entries are
+ * held until the oldest one has waited for the window or enough leads have piled up, and are then dispatched
+ * together so each subscriber gets one combined message.
+ */
+@Component
+@Slf4j
+public class LeadOutboxWorker {
+
+    public enum Mode {
+        IMMEDIATE,
+        DIGEST
+    }
+
+    private final LeadOutboxRepository outboxRepository;
+    private final LeadRepository leadRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Mode mode;
+    private final Duration digestWindow;
+    private final int digestMaxLeads;
+
+    public LeadOutboxWorker(LeadOutboxRepository outboxRepository,
+                            LeadRepository leadRepository,
+                            NotificationService notificationService,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${app.outbox.batch-size:20}") int batchSize,
+                            @Value("${app.outbox.max-attempts:5}") int maxAttempts,
+                            @Value("${app.outbox.mode:immediate}") String mode,
+                            @Value("${app.outbox.digest.window:1m}") Duration digestWindow,
+                            @Value("${app.outbox.digest.max-leads:50}") int digestMaxLeads) {
+        this.outboxRepository = outboxRepository;
+        this.leadRepository = leadRepository;
+        this.notificationService = notificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase());
+        this.digestWindow = digestWindow;
+        this.digestMaxLeads = Math.max(1, digestMaxLeads);
+        log.info("Lead outbox worker in {} mode", this.mode);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:1000}")
+    public void drain() {
+        for (int i = 0; i < batchSize; i++) {
+            if (!dispatchNext()) return;
+        }
+    }
+
+    /**
+     * Claims one entry (or one digest) with SKIP LOCKED and dispatches it in the same transaction, so every node
+     * can drain the outbox concurrently. Returns false when there is nothing to do now or the dispatch failed;
+     * a failed entry is retried on the next run until it reaches max-attempts.
+     */
+    private boolean dispatchNext() {
+        List<Long> claimed = new ArrayList<>();
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                List<LeadOutbox> entries = mode == Mode.DIGEST ? claimDigest() : outboxRepository.claimPending(1);
+                if (entries.isEmpty()) return false;
+                entries.forEach(entry -> claimed.add(entry.getId()));
+                dispatch(entries);
+                return true;
+            }));
+        } catch (Exception e) {
+            log.error("Error processing lead outbox entries ids={}", claimed, e);
+            if (!claimed.isEmpty()) {
+                outboxRepository.recordFailure(claimed, e.getMessage(), maxAttempts);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Every entry holds at least one lead, so claiming max-leads entries is always enough to fill a digest.
+     * Returns nothing while the digest is neither full nor due; the claimed rows are released on commit.
+     */
+    private List<LeadOutbox> claimDigest() {
+        List<LeadOutbox> pending = outboxRepository.claimPending(digestMaxLeads);
+        if (pending.isEmpty()) return pending;
+
+        List<LeadOutbox> digest = new ArrayList<>();
+        int leads = 0;
+        for (LeadOutbox entry : pending) {
+            if (!digest.isEmpty() && leads + entry.getLeadIds().length > digestMaxLeads) break;
+            digest.add(entry);
+            leads += entry.getLeadIds().length;
+        }
+
+        boolean full = leads >= digestMaxLeads || digest.size() < pending.size();
+        boolean due = !digest.getFirst().getCreatedAt().isAfter(OffsetDateTime.now().minus(digestWindow));
+        return full || due ? digest : List.of();
+    }
+
+    private void dispatch(List<LeadOutbox> entries) {
+        List<Long> ids = entries.stream()
+                .flatMap(entry -> Arrays.stream(entry.getLeadIds()))
+                .toList();
+        List<Lead> leads = leadRepository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(Lead::getId))
+                .toList();
+        if (!leads.isEmpty()) {
+            notificationService.schedule(entries.getFirst().getId(), leads);
+        }
+        for (LeadOutbox entry : entries) {
+            entry.setStatus(OutboxStatus.DONE);
+            entry.setProcessedAt(OffsetDateTime.now());
+            entry.setLastError(null);
+        }
+    }
+}
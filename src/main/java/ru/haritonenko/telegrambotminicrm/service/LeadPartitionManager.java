@@ -0,0 +1,243 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maintains the monthly range partitions of minicrm.leads: converts a table created before partitioning
+ * (its rows stay where they are as partition leads_legacy), creates partitions ahead of time and detaches,
+ * optionally drops, partitions older than the retention. Work is serialized across replicas with an advisory lock.
+ */
+@Service
+@Slf4j
+public class LeadPartitionManager implements SmartLifecycle {
+
+    private static final String LOCK = "SELECT pg_advisory_xact_lock(hashtext('minicrm.leads.partitions'))";
+    private static final Pattern BOUND = Pattern.compile("FROM \\((.+?)\\) TO \\((.+?)\\)");
+    private static final DateTimeFormatter PG_TIMESTAMPTZ = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ssx");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final List<String> LEGACY_INDEXES = List.of(
+            "ix_lead_created_at", "ix_lead_source", "ix_lead_district",
+            "ux_lead_phone_normalized", "ix_lead_fio_trgm", "ix_lead_phone_trgm");
+
+    private static final List<String> PARENT_INDEXES = List.of(
+            "CREATE INDEX IF NOT EXISTS ix_lead_created_at ON minicrm.leads(created_at)",
+            "CREATE INDEX IF NOT EXISTS ix_lead_source ON minicrm.leads(source)",
+            "CREATE INDEX IF NOT EXISTS ix_lead_district ON minicrm.leads(district)",
+            "CREATE INDEX IF NOT EXISTS ix_lead_fio_trgm ON minicrm.leads USING gin (lower(fio) gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS ix_lead_phone_trgm ON minicrm.leads USING gin ((phone_normalized::text) gin_trgm_ops)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean dropExpired;
+    private final int importMaxAgeMonths;
+    private volatile boolean running;
+
+    public LeadPartitionManager(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.leads.partitions.months-ahead:3}") int monthsAhead,
+                                @Value("${app.leads.partitions.retention-months:0}") int retentionMonths,
+                                @Value("${app.leads.partitions.drop-expired:false}") boolean dropExpired,
+                                @Value("${app.leads.partitions.import-max-age-months:120}") int importMaxAgeMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.retentionMonths = Math.max(0, retentionMonths);
+        this.dropExpired = dropExpired;
+        this.importMaxAgeMonths = Math.max(1, importMaxAgeMonths);
+    }
+
+    private record Partition(String name, Instant from, Instant to) {
+
+        boolean overlaps(Instant start, Instant end) {
+            return (from == null || from.isBefore(end)) && (to == null || to.isAfter(start));
+        }
+    }
+
+    /**
+     * Runs on lifecycle start, like {@link SubscriberRegistry}, so partitions exist before the lead API opens.
+     * A failure fails startup: without the current partition every lead insert would be rejected.
+     */
+    @Override
+    public void start() {
+        maintain();
+        running = true;
+    }
+
+    /**
+     * Dates an import may carry, {@code [from, to)}: from the retention cutoff (or the max import age when
+     * partitions are kept forever) up to the last partition {@link #maintain()} creates ahead.
+     * Older rows would be expired at once, newer ones would each add a partition nobody maintains.
+     */
+    public OffsetDateTime[] importRange() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        int back = retentionMonths > 0 ? retentionMonths : importMaxAgeMonths;
+        return new OffsetDateTime[]{
+                monthStart(current.minusMonths(back)).atOffset(ZoneOffset.UTC),
+                monthStart(current.plusMonths(monthsAhead + 1)).atOffset(ZoneOffset.UTC)};
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SubscriberRegistry.STARTUP_PHASE;
+    }
+
+    @Scheduled(cron = "${app.leads.partitions.cron:0 15 3 * * *}", zone = "UTC")
+    public void maintain() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        inLock(() -> {
+            convertIfNeeded();
+            createMissing(current, current.plusMonths(monthsAhead));
+            if (retentionMonths > 0) {
+                expireBefore(monthStart(current.minusMonths(retentionMonths)));
+            }
+        });
+    }
+
+    /**
+     * Creates the partitions needed for rows dated within {@code [from, to]}, e.g. before a historical import.
+     */
+    public void ensurePartitions(YearMonth from, YearMonth to) {
+        inLock(() -> createMissing(from, to));
+    }
+
+    private void inLock(Runnable work) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SET LOCAL TIME ZONE 'UTC'");
+            jdbcTemplate.execute(LOCK);
+            work.run();
+        });
+    }
+
+    private void convertIfNeeded() {
+        String kind = jdbcTemplate.queryForObject("""
+                SELECT c.relkind::text
+                FROM pg_class c
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = 'minicrm' AND c.relname = 'leads'
+                """, String.class);
+        if (!"r".equals(kind)) return;
+
+        Instant upper = Objects.requireNonNull(jdbcTemplate.queryForObject("""
+                SELECT GREATEST(date_trunc('month', NOW()), date_trunc('month', MAX(created_at))) + INTERVAL '1 month'
+                FROM minicrm.leads
+                """, OffsetDateTime.class)).toInstant();
+        log.warn("Converting minicrm.leads to a partitioned table, existing rows become partition leads_legacy up to {}", upper);
+
+        jdbcTemplate.execute("LOCK TABLE minicrm.leads IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("ALTER TABLE minicrm.leads RENAME TO leads_legacy");
+        for (String index : LEGACY_INDEXES) {
+            jdbcTemplate.execute("ALTER INDEX IF EXISTS minicrm." + index + " RENAME TO " + index + "_legacy");
+        }
+        String primaryKey = jdbcTemplate.query(
+                "SELECT conname FROM pg_constraint WHERE conrelid = 'minicrm.leads_legacy'::regclass AND contype = 'p'",
+                rs -> rs.next() ? rs.getString(1) : null);
+        if (primaryKey != null) {
+            jdbcTemplate.execute("ALTER TABLE minicrm.leads_legacy RENAME CONSTRAINT " + primaryKey + " TO leads_legacy_pkey");
+        }
+
+        jdbcTemplate.execute("""
+                CREATE TABLE minicrm.leads (LIKE minicrm.leads_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS)
+                PARTITION BY RANGE (created_at)
+                """);
+        jdbcTemplate.execute("ALTER TABLE minicrm.leads ADD PRIMARY KEY (id, created_at)");
+        String sequence = jdbcTemplate.queryForObject(
+                "SELECT pg_get_serial_sequence('minicrm.leads_legacy', 'id')", String.class);
+        if (sequence != null) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY minicrm.leads.id");
+        }
+        jdbcTemplate.execute("ALTER TABLE minicrm.leads ATTACH PARTITION minicrm.leads_legacy FOR VALUES FROM (MINVALUE) TO ('" + upper + "')");
+        PARENT_INDEXES.forEach(jdbcTemplate::execute);
+        log.info("minicrm.leads converted to a partitioned table");
+    }
+
+    private void createMissing(YearMonth from, YearMonth to) {
+        List<Partition> existing = partitions();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            Instant start = monthStart(month);
+            Instant end = monthStart(month.plusMonths(1));
+            if (existing.stream().anyMatch(p -> p.overlaps(start, end))) continue;
+
+            String name = "leads_p" + month.format(PARTITION_SUFFIX);
+            jdbcTemplate.execute("CREATE TABLE minicrm." + name + " PARTITION OF minicrm.leads"
+                    + " FOR VALUES FROM ('" + start + "') TO ('" + end + "')");
+            existing.add(new Partition(name, start, end));
+            log.info("Created lead partition minicrm.{}", name);
+        }
+    }
+
+    private void expireBefore(Instant cutoff) {
+        for (Partition partition : partitions()) {
+            if (partition.to() == null || partition.to().isAfter(cutoff)) continue;
+
+            int released = jdbcTemplate.update("DELETE FROM minicrm.lead_phones p USING minicrm." + partition.name() + " l"
+                    + " WHERE p.phone_normalized = l.phone_normalized AND p.lead_id = l.id");
+            jdbcTemplate.execute("ALTER TABLE minicrm.leads DETACH PARTITION minicrm." + partition.name());
+            if (dropExpired) {
+                jdbcTemplate.execute("DROP TABLE minicrm." + partition.name());
+            }
+            log.info("Expired lead partition minicrm.{} ({}), released {} phones",
+                    partition.name(), dropExpired ? "dropped" : "detached", released);
+        }
+    }
+
+    private List<Partition> partitions() {
+        List<Partition> result = new ArrayList<>();
+        jdbcTemplate.query("""
+                SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'minicrm.leads'::regclass
+                """, rs -> {
+            Matcher m = BOUND.matcher(rs.getString(2));
+            if (m.find()) {
+                result.add(new Partition(rs.getString(1), bound(m.group(1)), bound(m.group(2))));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Parses a range bound as rendered by pg_get_expr with the session time zone set to UTC; MINVALUE/MAXVALUE give null.
+     */
+    private static Instant bound(String value) {
+        if (!value.startsWith("'")) return null;
+        return OffsetDateTime.parse(value.substring(1, value.length() - 1), PG_TIMESTAMPTZ).toInstant();
+    }
+
+    private static Instant monthStart(YearMonth month) {
+        return month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.haritonenko.telegrambotminicrm.model.Lead;
+import ru.haritonenko.telegrambotminicrm.repository.LeadSearchRepository;
+import ru.haritonenko.telegrambotminicrm.util.PhoneNormalizer;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class LeadSearchService {
+
+    /**
+     * Trigram indexes can't serve patterns shorter than one trigram.
+     */
+    public static final int MIN_QUERY_LENGTH = 3;
+    public static final int MAX_QUERY_LENGTH = 100;
+
+    private final LeadSearchRepository leadSearchRepository;
+
+    /**
+     * A query with letters searches FIO, a query of digits and phone punctuation searches phones.
+     */
+    public record Query(String text, String digits) {
+    }
+
+    public static Optional<Query> parse(String raw) {
+        if (raw == null) return Optional.empty();
+        String trimmed = raw.trim();
+        if (trimmed.length() < MIN_QUERY_LENGTH || trimmed.length() > MAX_QUERY_LENGTH) return Optional.empty();
+
+        boolean hasLetters = trimmed.chars().anyMatch(Character::isLetter);
+        if (hasLetters) {
+            return Optional.of(new Query(trimmed, null));
+        }
+        String digits = phoneDigits(trimmed);
+        if (digits.length() < MIN_QUERY_LENGTH) return Optional.empty();
+        return Optional.of(new Query(null, digits));
+    }
+
+    /**
+     * Digits are matched as a fragment of the stored key, so they are only rewritten by {@link PhoneNormalizer}
+     * when they can only be a whole number in trunk format (8 and ten digits). A local ten-digit number needs no
+     * rewrite: it is a substring of its 7-prefixed key anyway, just like any fragment from the middle.
+     */
+    private static String phoneDigits(String query) {
+        String digits = query.replaceAll("[^0-9]", "");
+        if (digits.length() == 11 && digits.charAt(0) == '8') return PhoneNormalizer.e164Digits(digits);
+        return digits;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Lead> after(Query query, long afterId, int limit) {
+        return leadSearchRepository.searchAfter(query.text(), query.digits(), afterId, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Lead> before(Query query, long beforeId, int limit) {
+        return leadSearchRepository.searchBefore(query.text(), query.digits(), beforeId, limit);
+    }
+}
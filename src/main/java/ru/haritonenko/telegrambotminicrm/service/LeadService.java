@@ -0,0 +1,170 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.haritonenko.telegrambotminicrm.dto.LeadBatchItemResult;
+import ru.haritonenko.telegrambotminicrm.dto.LeadBatchResponse;
+import ru.haritonenko.telegrambotminicrm.dto.LeadBatchStatus;
+import ru.haritonenko.telegrambotminicrm.dto.LeadRequest;
+import ru.haritonenko.telegrambotminicrm.metrics.BotMetrics;
+import ru.haritonenko.telegrambotminicrm.model.Lead;
+import ru.haritonenko.telegrambotminicrm.model.LeadOutbox;
+import ru.haritonenko.telegrambotminicrm.model.OutboxStatus;
+import ru.haritonenko.telegrambotminicrm.repository.LeadBatchRepository;
+import ru.haritonenko.telegrambotminicrm.repository.LeadOutboxRepository;
+import ru.haritonenko.telegrambotminicrm.repository.LeadRepository;
+import ru.haritonenko.telegrambotminicrm.repository.LeadRollupRepository;
+import ru.haritonenko.telegrambotminicrm.util.LogRedactor;
+import ru.haritonenko.telegrambotminicrm.util.PhoneNormalizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LeadService {
+
+    private final LeadRepository leadRepository;
+    private final LeadOutboxRepository outboxRepository;
+    private final LeadBatchRepository leadBatchRepository;
+    private final LeadRollupRepository leadRollupRepository;
+    private final Validator validator;
+    private final BotMetrics botMetrics;
+
+    @Transactional
+    public boolean acceptLead(LeadRequest request) {
+        long started = System.nanoTime();
+        if (log.isDebugEnabled()) {
+            log.debug("Received lead request: phone={}, fio={}, amount={}",
+                    LogRedactor.phone(request.phone()), LogRedactor.name(request.fio()), request.amount());
+        }
+
+        Long leadId = leadRepository.insertIfPhoneAbsent(
+                request.fio(),
+                request.phone(),
+                PhoneNormalizer.normalize(request.phone()),
+                request.district(),
+                request.source(),
+                request.quantity(),
+                request.amount()
+        ).orElse(null);
+        if (leadId == null) {
+            log.debug("Lead with equivalent phone already exists, skipping: phone={}", LogRedactor.phone(request.phone()));
+            botMetrics.recordLeadResults(0, 1, 0);
+            botMetrics.recordLeadIngest("single", System.nanoTime() - started);
+            return false;
+        }
+
+        leadRollupRepository.addLeads(List.of(leadId));
+        outboxRepository.save(LeadOutbox.builder()
+                .leadIds(new Long[]{leadId})
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .build());
+
+        log.debug("Lead saved and queued for notification: id={}", leadId);
+        botMetrics.recordLeadResults(1, 0, 0);
+        botMetrics.recordLeadIngest("single", System.nanoTime() - started);
+        return true;
+    }
+
+    /**
+     * Accepts a batch of leads; {@code null} elements stand for items that could not be parsed.
+     * Duplicates are resolved with one lookup for the whole batch and created leads share one outbox entry.
+     */
+    @Transactional
+    public LeadBatchResponse acceptBatch(List<LeadRequest> requests) {
+        long started = System.nanoTime();
+        int n = requests.size();
+        LeadBatchItemResult[] results = new LeadBatchItemResult[n];
+        String[] normalized = new String[n];
+        Set<String> seenPhones = new HashSet<>();
+
+        for (int i = 0; i < n; i++) {
+            LeadRequest request = requests.get(i);
+            if (request == null) {
+                results[i] = new LeadBatchItemResult(i, LeadBatchStatus.INVALID, null, "Malformed lead");
+                continue;
+            }
+            Set<ConstraintViolation<LeadRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                String error = violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+                results[i] = new LeadBatchItemResult(i, LeadBatchStatus.INVALID, null, error);
+                continue;
+            }
+            normalized[i] = PhoneNormalizer.normalize(request.phone());
+            if (normalized[i] != null && !seenPhones.add(normalized[i])) {
+                results[i] = new LeadBatchItemResult(i, LeadBatchStatus.DUPLICATE, null, null);
+            }
+        }
+
+        Set<String> existing = leadBatchRepository.findExistingPhones(seenPhones.toArray(String[]::new));
+
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (results[i] != null) continue;
+            if (normalized[i] != null && existing.contains(normalized[i])) {
+                results[i] = new LeadBatchItemResult(i, LeadBatchStatus.DUPLICATE, null, null);
+            } else {
+                positions.add(i);
+            }
+        }
+
+        long[] ids = leadBatchRepository.nextIds(positions.size());
+        List<Lead> leads = new ArrayList<>(positions.size());
+        for (int k = 0; k < positions.size(); k++) {
+            int i = positions.get(k);
+            LeadRequest request = requests.get(i);
+            leads.add(Lead.builder()
+                    .id(ids[k])
+                    .fio(request.fio())
+                    .phone(request.phone())
+                    .phoneNormalized(normalized[i])
+                    .district(request.district())
+                    .source(request.source())
+                    .quantity(request.quantity())
+                    .amount(request.amount())
+                    .build());
+        }
+
+        Set<Long> inserted = leadBatchRepository.insertIfPhoneAbsent(leads);
+        List<Long> createdIds = new ArrayList<>(leads.size());
+        for (int k = 0; k < leads.size(); k++) {
+            int i = positions.get(k);
+            if (inserted.contains(ids[k])) {
+                createdIds.add(ids[k]);
+                results[i] = new LeadBatchItemResult(i, LeadBatchStatus.CREATED, ids[k], null);
+            } else {
+                results[i] = new LeadBatchItemResult(i, LeadBatchStatus.DUPLICATE, null, null);
+            }
+        }
+
+        if (!createdIds.isEmpty()) {
+            leadRollupRepository.addLeads(createdIds);
+            outboxRepository.save(LeadOutbox.builder()
+                    .leadIds(createdIds.toArray(Long[]::new))
+                    .status(OutboxStatus.PENDING)
+                    .attempts(0)
+                    .build());
+        }
+
+        LeadBatchResponse response = LeadBatchResponse.of(Arrays.asList(results));
+        botMetrics.recordLeadResults(response.created(), response.duplicates(), response.invalid());
+        botMetrics.recordLeadIngest("batch", System.nanoTime() - started);
+        log.info("Lead batch processed: size={}, created={}, duplicates={}, invalid={}",
+                n, response.created(), response.duplicates(), response.invalid());
+        return response;
+    }
+}
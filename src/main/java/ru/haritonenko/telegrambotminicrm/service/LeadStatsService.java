@@ -0,0 +1,36 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.haritonenko.telegrambotminicrm.dto.LeadStatsResponse;
+import ru.haritonenko.telegrambotminicrm.repository.LeadRollupRepository;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+@Service
+@RequiredArgsConstructor
+public class LeadStatsService {
+
+    private final LeadRollupRepository rollupRepository;
+
+    @Value("${app.stats.max-days:366}")
+    private int maxDays;
+
+    @Transactional(readOnly = true)
+    public LeadStatsResponse stats(int days) {
+        int window = Math.max(1, Math.min(days, maxDays));
+        LocalDate to = LocalDate.now(ZoneOffset.UTC);
+        LocalDate from = to.minusDays(window - 1L);
+        return new LeadStatsResponse(
+                from,
+                to,
+                rollupRepository.total(from),
+                rollupRepository.byDistrict(from),
+                rollupRepository.bySource(from),
+                rollupRepository.byDay(from)
+        );
+    }
+}
@@ -0,0 +1,178 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+import ru.haritonenko.telegrambotminicrm.metrics.BotMetrics;
+import ru.haritonenko.telegrambotminicrm.util.MessageChunks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Non-blocking outbound path for bot replies. Messages to one chat are sent in order, one request at a time;
+ * replies queued behind an in-flight request are merged into one message when the text fits and at most the
+ * last of them carries a keyboard. The returned future reports the outcome of the request that carried the text.
+ */
+@Component
+@Slf4j
+public class MessageGateway {
+
+    private static final String SEPARATOR = "\n\n";
+    private static final int FORBIDDEN = 403;
+
+    private final TelegramClient telegramClient;
+    private final BotMetrics botMetrics;
+    private final Semaphore inFlight;
+    private final ConcurrentHashMap<Long, ArrayDeque<Outgoing>> queues = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public MessageGateway(TelegramClient telegramClient,
+                          BotMetrics botMetrics,
+                          @Value("${bot.gateway.max-in-flight:32}") int maxInFlight) {
+        this.telegramClient = telegramClient;
+        this.botMetrics = botMetrics;
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+    }
+
+    private static final class Outgoing {
+        private final StringBuilder text;
+        private ReplyKeyboard markup;
+        private final List<CompletableFuture<Void>> waiters = new ArrayList<>(1);
+        private boolean sealed;
+
+        private Outgoing(String text, ReplyKeyboard markup, CompletableFuture<Void> waiter) {
+            this.text = new StringBuilder(text);
+            this.markup = markup;
+            this.waiters.add(waiter);
+        }
+
+        private boolean tryMerge(String more, ReplyKeyboard moreMarkup, CompletableFuture<Void> waiter) {
+            if (sealed || markup != null || text.length() + SEPARATOR.length() + more.length() > MessageChunks.TELEGRAM_MAX_LENGTH) {
+                return false;
+            }
+            text.append(SEPARATOR).append(more);
+            markup = moreMarkup;
+            waiters.add(waiter);
+            return true;
+        }
+    }
+
+    public CompletableFuture<Void> send(Long chatId, String text) {
+        return send(chatId, text, null);
+    }
+
+    public CompletableFuture<Void> send(Long chatId, String text, ReplyKeyboard markup) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        boolean[] startDrain = new boolean[1];
+        queues.compute(chatId, (id, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                startDrain[0] = true;
+            }
+            Outgoing last = queue.peekLast();
+            if (last == null || !last.tryMerge(text, markup, result)) {
+                queue.addLast(new Outgoing(text, markup, result));
+            }
+            return queue;
+        });
+        if (startDrain[0]) executor.execute(() -> sendHead(chatId));
+        return result;
+    }
+
+    /**
+     * The head of a chat queue is the message in flight; it is removed once the request completes,
+     * and the queue itself is dropped when nothing is left, which lets the next send start a new drain.
+     */
+    private void sendHead(Long chatId) {
+        Outgoing[] head = new Outgoing[1];
+        queues.computeIfPresent(chatId, (id, queue) -> {
+            head[0] = queue.peekFirst();
+            if (head[0] != null) head[0].sealed = true;
+            return queue;
+        });
+        if (head[0] == null) return;
+
+        String text = head[0].text.toString();
+        ReplyKeyboard markup = head[0].markup;
+        List<CompletableFuture<Void>> waiters = head[0].waiters;
+
+        SendMessage message = SendMessage.builder()
+                .chatId(chatId.toString())
+                .text(text)
+                .replyMarkup(markup)
+                .build();
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            complete(chatId, waiters, e);
+            advance(chatId);
+            return;
+        }
+
+        Timer.Sample sample = botMetrics.startTimer();
+        CompletableFuture<?> call;
+        try {
+            call = telegramClient.executeAsync(message);
+        } catch (Exception e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((sent, error) -> {
+            inFlight.release();
+            botMetrics.recordTelegramCall("sendMessage", sample, error);
+            complete(chatId, waiters, error);
+            executor.execute(() -> advance(chatId));
+        });
+    }
+
+    private void advance(Long chatId) {
+        boolean[] more = new boolean[1];
+        queues.computeIfPresent(chatId, (id, queue) -> {
+            queue.pollFirst();
+            more[0] = !queue.isEmpty();
+            return more[0] ? queue : null;
+        });
+        if (more[0]) sendHead(chatId);
+    }
+
+    private void complete(Long chatId, List<CompletableFuture<Void>> waiters, Throwable error) {
+        if (error == null) {
+            log.debug("Sent message to chatId={}", chatId);
+            waiters.forEach(w -> w.complete(null));
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (isBlocked(cause)) {
+            log.info("Message to chatId={} not delivered, the chat blocked the bot", chatId);
+        } else {
+            log.error("Error sending message to chatId={}", chatId, cause);
+        }
+        waiters.forEach(w -> w.completeExceptionally(cause));
+    }
+
+    /**
+     * 403 from Telegram: the user blocked the bot or left the chat. Expected, so it is not an error.
+     */
+    public static boolean isBlocked(Throwable error) {
+        return error instanceof TelegramApiRequestException e && Integer.valueOf(FORBIDDEN).equals(e.getErrorCode());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -3,75 +3,73 @@ package ru.haritonenko.telegrambotminicrm.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
-import ru.haritonenko.telegrambotminicrm.dto.LeadRequest;
 import ru.haritonenko.telegrambotminicrm.model.Lead;
-import ru.haritonenko.telegrambotminicrm.model.User;
-import ru.haritonenko.telegrambotminicrm.repository.LeadRepository;
-import ru.haritonenko.telegrambotminicrm.repository.UserRepository;
+import ru.haritonenko.telegrambotminicrm.model.LeadDelivery;
+import ru.haritonenko.telegrambotminicrm.repository.LeadDeliveryRepository;
+import ru.haritonenko.telegrambotminicrm.util.MessageChunks;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Decides who gets which leads and renders the notification texts. Sending is done by
+ * {@link LeadDeliveryWorker} from the delivery ledger this service fills.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
-    private final TelegramClient telegramClient;
-    private final UserRepository userRepository;
-    private final LeadRepository leadRepository;
+    private final SubscriberRegistry subscriberRegistry;
+    private final LeadDeliveryRepository deliveryRepository;
 
-    public boolean broadcastLead(LeadRequest request) {
-        log.info("Received lead request: phone={}, fio={}, amount={}", request.phone(), request.fio(), request.amount());
-
-        boolean exists = leadRepository.existsByPhoneEquivalent(request.phone());
-        if (exists) {
-            log.info("Lead with equivalent phone already exists, skipping: phone={}", request.phone());
-            return false;
-        }
-
-        Lead lead = Lead.builder()
-                .fio(request.fio())
-                .phone(request.phone())
-                .district(request.district())
-                .source(request.source())
-                .quantity(request.quantity())
-                .amount(request.amount())
-                .build();
-        lead = leadRepository.save(lead);
-
-        log.info("Lead saved: id={}, phone={}", lead.getId(), lead.getPhone());
-
-        List<User> targets = userRepository.findByNotifyTrue();
-        log.info("Found {} users with notify=true", targets.size());
-
-        String text = """
-                🔔 Новая заявка #%d
-                ФИО: %s
-                Телефон: %s
-                Район: %s
-                Source: %s
-                Кол-во: %d
-                Сумма: %s
-                """.formatted(
-                lead.getId(), lead.getFio(), lead.getPhone(),
-                lead.getDistrict(), lead.getSource(), lead.getQuantity(), lead.getAmount()
-        );
-
-        for (User u : targets) {
-            if (u.getChatId() == null) continue;
-            try {
-                telegramClient.execute(SendMessage.builder()
-                        .chatId(u.getChatId().toString())
-                        .text(text)
-                        .build());
-                log.debug("Lead notification sent to chatId={}", u.getChatId());
-            } catch (Exception e) {
-                log.error("Error sending lead notification to chatId={}", u.getChatId(), e);
+    /**
+     * Writes one ledger row per subscriber that matches at least one of the leads; each row carries only
+     * the leads that subscriber's filters accept. Runs in the caller's transaction.
+     */
+    public int schedule(long outboxId, List<Lead> leads) {
+        Map<Long, List<Long>> leadIdsByChat = new HashMap<>();
+        for (Lead lead : leads) {
+            for (long chatId : subscriberRegistry.recipients(lead.getDistrict(), lead.getSource())) {
+                leadIdsByChat.computeIfAbsent(chatId, id -> new ArrayList<>()).add(lead.getId());
             }
         }
+        List<LeadDelivery> deliveries = new ArrayList<>(leadIdsByChat.size());
+        leadIdsByChat.forEach((chatId, ids) ->
+                deliveries.add(new LeadDelivery(outboxId, chatId, ids.toArray(Long[]::new), 0, 0)));
+        deliveryRepository.insertAll(deliveries);
+        log.info("Outbox #{}: {} leads scheduled for {} of {} subscribers",
+                outboxId, leads.size(), deliveries.size(), subscriberRegistry.size());
+        return deliveries.size();
+    }
 
-        return true;
+    /**
+     * Message parts for one notification, split at Telegram's length limit. Leads must be sorted by id,
+     * so the same leads always render to the same parts and a resumed delivery continues at the right one.
+     */
+    public static List<String> render(List<Lead> leads) {
+        if (leads.size() == 1) {
+            Lead lead = leads.getFirst();
+            return List.of("""
+                    🔔 Новая заявка #%d
+                    ФИО: %s
+                    Телефон: %s
+                    Район: %s
+                    Source: %s
+                    Кол-во: %d
+                    Сумма: %s
+                    """.formatted(
+                    lead.getId(), lead.getFio(), lead.getPhone(),
+                    lead.getDistrict(), lead.getSource(), lead.getQuantity(), lead.getAmount()
+            ));
+        }
+        List<String> blocks = leads.stream()
+                .map(l -> "#%d | %s | %s | %s | %s | кол-во=%d | сумма=%s\n".formatted(
+                        l.getId(), l.getFio(), l.getPhone(), l.getDistrict(), l.getSource(), l.getQuantity(), l.getAmount()))
+                .toList();
+        return MessageChunks.pack(
+                "🔔 Новые заявки: %d\n\n".formatted(leads.size()), blocks, MessageChunks.TELEGRAM_MAX_LENGTH);
     }
 }
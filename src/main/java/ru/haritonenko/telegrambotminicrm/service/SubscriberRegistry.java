@@ -0,0 +1,228 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.haritonenko.telegrambotminicrm.model.SubscriptionFilter;
+import ru.haritonenko.telegrambotminicrm.model.SubscriptionFilterKind;
+import ru.haritonenko.telegrambotminicrm.repository.SubscriptionFilterRepository;
+import ru.haritonenko.telegrambotminicrm.repository.UserRepository;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-process set of chat ids with notify=true, kept as a sorted primitive array, together with an inverted
+ * index from district/source filter values to bitmaps over that array. Reads take a lock-free snapshot;
+ * (rare) subscription and filter changes rebuild the index.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SubscriberRegistry implements SmartLifecycle {
+
+    /**
+     * Before the web server, whose lifecycle phase is just below the default one.
+     */
+    static final int STARTUP_PHASE = 0;
+
+    /**
+     * Bit i of every bitmap refers to chatIds[i]. {@code unfiltered*} marks chats without filters of that kind.
+     */
+    private record Index(long[] chatIds,
+                         Map<Long, List<SubscriptionFilter>> filters,
+                         BitSet unfilteredDistrict,
+                         Map<String, BitSet> byDistrict,
+                         BitSet unfilteredSource,
+                         Map<String, BitSet> bySource) {
+
+        static Index build(long[] chatIds, Map<Long, List<SubscriptionFilter>> filters) {
+            int n = chatIds.length;
+            BitSet unfilteredDistrict = new BitSet(n);
+            BitSet unfilteredSource = new BitSet(n);
+            Map<String, BitSet> byDistrict = new HashMap<>();
+            Map<String, BitSet> bySource = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                boolean hasDistrict = false, hasSource = false;
+                for (SubscriptionFilter filter : filters.getOrDefault(chatIds[i], List.of())) {
+                    boolean district = filter.kind() == SubscriptionFilterKind.DISTRICT;
+                    (district ? byDistrict : bySource)
+                            .computeIfAbsent(SubscriptionFilter.key(filter.value()), k -> new BitSet(n))
+                            .set(i);
+                    hasDistrict |= district;
+                    hasSource |= !district;
+                }
+                if (!hasDistrict) unfilteredDistrict.set(i);
+                if (!hasSource) unfilteredSource.set(i);
+            }
+            return new Index(chatIds, filters, unfilteredDistrict, byDistrict, unfilteredSource, bySource);
+        }
+
+        static BitSet matching(BitSet unfiltered, Map<String, BitSet> byValue, String value) {
+            BitSet result = (BitSet) unfiltered.clone();
+            BitSet matched = byValue.get(SubscriptionFilter.key(value));
+            if (matched != null) result.or(matched);
+            return result;
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final SubscriptionFilterRepository filterRepository;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Index index = Index.build(new long[0], Map.of());
+    private volatile boolean running;
+
+    /**
+     * Loaded on lifecycle start rather than in @PostConstruct, so a context refresh without a database
+     * (the AppCDS training run) succeeds; this still happens before scheduled workers and the web server start.
+     */
+    @Override
+    public void start() {
+        reload();
+        Index loaded = index;
+        log.info("Subscriber registry loaded: {} chats, {} with filters", loaded.chatIds().length, loaded.filters().size());
+        Gauge.builder("notifications.subscribers", this, SubscriberRegistry::size).register(meterRegistry);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return STARTUP_PHASE;
+    }
+
+    /**
+     * Replaces the registry with the current DB state; used by cluster nodes to pick up changes made elsewhere.
+     */
+    public void reload() {
+        writeLock.lock();
+        try {
+            long[] loaded = userRepository.findNotifyChatIds().stream()
+                    .mapToLong(Long::longValue)
+                    .sorted()
+                    .distinct()
+                    .toArray();
+            Map<Long, List<SubscriptionFilter>> filters = filterRepository.findAll().stream()
+                    .collect(Collectors.groupingBy(SubscriptionFilter::chatId));
+            index = Index.build(loaded, filters);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long[] snapshot() {
+        return index.chatIds();
+    }
+
+    public int size() {
+        return index.chatIds().length;
+    }
+
+    public boolean contains(long chatId) {
+        return Arrays.binarySearch(index.chatIds(), chatId) >= 0;
+    }
+
+    /**
+     * Subscribed chats whose filters accept a lead from this district and source; no DB access.
+     */
+    public long[] recipients(String district, String source) {
+        Index current = index;
+        BitSet matched = Index.matching(current.unfilteredDistrict(), current.byDistrict(), district);
+        matched.and(Index.matching(current.unfilteredSource(), current.bySource(), source));
+
+        long[] result = new long[matched.cardinality()];
+        int n = 0;
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            result[n++] = current.chatIds()[i];
+        }
+        return result;
+    }
+
+    public List<SubscriptionFilter> filters(long chatId) {
+        return index.filters().getOrDefault(chatId, List.of());
+    }
+
+    public void add(long chatId) {
+        writeLock.lock();
+        try {
+            Index current = index;
+            long[] chatIds = current.chatIds();
+            int pos = Arrays.binarySearch(chatIds, chatId);
+            if (pos >= 0) return;
+            int insertAt = -pos - 1;
+            long[] next = new long[chatIds.length + 1];
+            System.arraycopy(chatIds, 0, next, 0, insertAt);
+            next[insertAt] = chatId;
+            System.arraycopy(chatIds, insertAt, next, insertAt + 1, chatIds.length - insertAt);
+            index = Index.build(next, current.filters());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(long chatId) {
+        writeLock.lock();
+        try {
+            Index current = index;
+            long[] chatIds = current.chatIds();
+            int pos = Arrays.binarySearch(chatIds, chatId);
+            if (pos < 0) return;
+            long[] next = new long[chatIds.length - 1];
+            System.arraycopy(chatIds, 0, next, 0, pos);
+            System.arraycopy(chatIds, pos + 1, next, pos, chatIds.length - pos - 1);
+            index = Index.build(next, current.filters());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void removeAll(Collection<Long> removed) {
+        writeLock.lock();
+        try {
+            Index current = index;
+            Set<Long> gone = Set.copyOf(removed);
+            long[] next = Arrays.stream(current.chatIds()).filter(chatId -> !gone.contains(chatId)).toArray();
+            if (next.length != current.chatIds().length) {
+                index = Index.build(next, current.filters());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the chat's filters; an empty list makes it receive every lead again.
+     */
+    public void setFilters(long chatId, List<SubscriptionFilter> chatFilters) {
+        writeLock.lock();
+        try {
+            Index current = index;
+            Map<Long, List<SubscriptionFilter>> next = new HashMap<>(current.filters());
+            if (chatFilters.isEmpty()) next.remove(chatId);
+            else next.put(chatId, List.copyOf(chatFilters));
+            index = Index.build(current.chatIds(), next);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -1,17 +1,32 @@
 package ru.haritonenko.telegrambotminicrm.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.validation.annotation.Validated;
 import ru.haritonenko.telegrambotminicrm.exceptions.UserDeleteException;
 import ru.haritonenko.telegrambotminicrm.exceptions.UserNotFoundException;
+import ru.haritonenko.telegrambotminicrm.model.SubscriptionFilter;
+import ru.haritonenko.telegrambotminicrm.model.SubscriptionFilterKind;
 import ru.haritonenko.telegrambotminicrm.model.User;
+import ru.haritonenko.telegrambotminicrm.repository.SubscriptionFilterRepository;
 import ru.haritonenko.telegrambotminicrm.repository.UserRepository;
+import ru.haritonenko.telegrambotminicrm.util.PhoneNormalizer;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,13 +37,46 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final SubscriberRegistry subscriberRegistry;
+    private final SubscriptionFilterRepository filterRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.user-cache.max-size:10000}")
+    private long cacheMaxSize;
+    @Value("${app.user-cache.ttl:10m}")
+    private Duration cacheTtl;
+
+    private Cache<Long, User> usersByChatId;
+
+    @PostConstruct
+    void initCache() {
+        usersByChatId = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, usersByChatId, "users_by_chat_id");
+    }
+
+    public CacheStats userCacheStats() {
+        return usersByChatId.stats();
+    }
+
+    public long userCacheSize() {
+        return usersByChatId.estimatedSize();
+    }
+
+    /**
+     * Drops every cached user, e.g. when other nodes may have changed users behind this node's back.
+     */
+    public void invalidateCache() {
+        usersByChatId.invalidateAll();
+    }
 
     public static String normalizePhone(String phone) {
         if (phone == null) return null;
-        String digits = phone.replaceAll("\\D", "");
-        if (digits.isEmpty()) return phone;
-        if (digits.length() == 11 && digits.startsWith("8")) digits = "7" + digits.substring(1);
-        if (digits.length() == 10) digits = "7" + digits;
+        String digits = PhoneNormalizer.e164Digits(phone);
+        if (digits == null) return phone;
         return "+" + digits;
     }
 
@@ -37,9 +85,16 @@ public class UserService {
         return userRepository.findById(id);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * The cache holds its own copies and hands out fresh ones, so a caller changing the returned user
+     * (e.g. before {@link #save}) never affects the cached state or other readers.
+     */
     public Optional<User> getByChatId(Long chatId) {
-        return userRepository.findByChatId(chatId);
+        User cached = usersByChatId.getIfPresent(chatId);
+        if (cached != null) return Optional.of(cached.toBuilder().build());
+        Optional<User> loaded = userRepository.findByChatId(chatId);
+        loaded.ifPresent(u -> usersByChatId.put(chatId, u.toBuilder().build()));
+        return loaded;
     }
 
     @Transactional(readOnly = true)
@@ -49,7 +104,9 @@ public class UserService {
 
     @Transactional(readOnly = true)
     public Optional<User> getByPhone(String phone) {
-        return userRepository.findByPhone(phone);
+        String normalized = PhoneNormalizer.normalize(phone);
+        if (normalized == null) return Optional.empty();
+        return userRepository.findFirstByPhoneNormalized(normalized);
     }
 
     @Transactional(readOnly = true)
@@ -58,20 +115,82 @@ public class UserService {
     }
 
     @Transactional(readOnly = true)
-    public Page<User> findNotifyOn(Pageable pageable) {
-        return userRepository.findByNotifyTrue(pageable);
+    public List<User> findNotifyOnAfter(Long id, Limit limit) {
+        return userRepository.findByNotifyTrueAndIdGreaterThanOrderByIdAsc(id, limit);
+    }
+
+    @Transactional(readOnly = true)
+    public List<User> findNotifyOnBefore(Long id, Limit limit) {
+        return userRepository.findByNotifyTrueAndIdLessThanOrderByIdDesc(id, limit);
     }
 
     @Transactional
     public User save(User u) {
+        if (u.getChatId() != null) usersByChatId.invalidate(u.getChatId());
         User saved = userRepository.save(u);
+        long chatId = saved.getChatId();
+        boolean notify = Boolean.TRUE.equals(saved.getNotify());
+        User snapshot = saved.toBuilder().build();
+        afterCommit(() -> {
+            usersByChatId.put(chatId, snapshot);
+            if (notify) subscriberRegistry.add(chatId);
+            else subscriberRegistry.remove(chatId);
+        });
         log.info("User saved: id={}, chatId={}", saved.getId(), saved.getChatId());
         return saved;
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Turns notifications off for chats that blocked the bot, without loading the users.
+     */
+    @Transactional
+    public int unsubscribeAll(Collection<Long> chatIds) {
+        if (chatIds.isEmpty()) return 0;
+        int updated = userRepository.disableNotify(chatIds, OffsetDateTime.now());
+        List<Long> ids = List.copyOf(chatIds);
+        afterCommit(() -> {
+            usersByChatId.invalidateAll(ids);
+            subscriberRegistry.removeAll(ids);
+        });
+        log.info("Unsubscribed {} chats that blocked the bot", updated);
+        return updated;
+    }
+
+    public List<SubscriptionFilter> getFilters(Long chatId) {
+        return subscriberRegistry.filters(chatId);
+    }
+
+    /**
+     * Returns false when the chat already has this filter. The registry picks the change up after commit.
+     */
+    @Transactional
+    public boolean addFilter(Long chatId, SubscriptionFilterKind kind, String value) {
+        boolean added = filterRepository.add(new SubscriptionFilter(chatId, kind, value.trim().replaceAll("\\s+", " ")));
+        if (added) refreshFilters(chatId);
+        return added;
+    }
+
+    @Transactional
+    public boolean removeFilter(Long chatId, SubscriptionFilterKind kind, String value) {
+        boolean removed = filterRepository.remove(new SubscriptionFilter(chatId, kind, value.trim().replaceAll("\\s+", " ")));
+        if (removed) refreshFilters(chatId);
+        return removed;
+    }
+
+    @Transactional
+    public int clearFilters(Long chatId) {
+        int removed = filterRepository.removeAll(chatId);
+        afterCommit(() -> subscriberRegistry.setFilters(chatId, List.of()));
+        return removed;
+    }
+
+    private void refreshFilters(long chatId) {
+        List<SubscriptionFilter> filters = filterRepository.findByChatId(chatId);
+        afterCommit(() -> subscriberRegistry.setFilters(chatId, filters));
+    }
+
     public User getRequiredByChatId(Long chatId) {
-        return userRepository.findByChatId(chatId)
+        return getByChatId(chatId)
                 .orElseThrow(() -> {
                     log.warn("User with chatId={} not found", chatId);
                     return new UserNotFoundException("User with chatId=" + chatId + " not found");
@@ -80,17 +199,36 @@ public class UserService {
 
     @Transactional
     public void deleteByChatId(Long chatId) {
-        User user = userRepository.findByChatId(chatId)
+        User user = getByChatId(chatId)
                 .orElseThrow(() -> {
                     log.warn("Attempt to delete non-existing user with chatId={}", chatId);
                     return new UserNotFoundException("User with chatId=" + chatId + " not found");
                 });
         try {
+            usersByChatId.invalidate(chatId);
             userRepository.delete(user);
+            afterCommit(() -> {
+                usersByChatId.invalidate(chatId);
+                subscriberRegistry.remove(chatId);
+                subscriberRegistry.setFilters(chatId, List.of());
+            });
             log.info("User deleted: id={}, chatId={}", user.getId(), chatId);
         } catch (Exception e) {
             log.error("Error deleting user with chatId={}", chatId, e);
             throw new UserDeleteException("Error deleting user with chatId=" + chatId, e);
         }
     }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
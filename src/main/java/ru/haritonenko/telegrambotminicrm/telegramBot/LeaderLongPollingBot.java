@@ -0,0 +1,52 @@
+package ru.haritonenko.telegrambotminicrm.telegramBot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.longpolling.TelegramBotsLongPollingApplication;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import ru.haritonenko.telegrambotminicrm.consumer.UpdateDispatcher;
+import ru.haritonenko.telegrambotminicrm.service.ClusterNode;
+
+/**
+ * Long polling in cluster mode: Telegram allows a single getUpdates consumer per bot,
+ * so only the current leader registers the bot session.
+ */
+@Component
+@ConditionalOnExpression("${app.cluster.enabled:false} and '${bot.mode:long-polling}' == 'long-polling'")
+@Slf4j
+public class LeaderLongPollingBot implements ClusterNode.LeadershipListener {
+
+    private final TelegramBotsLongPollingApplication botsApplication;
+    private final UpdateDispatcher updateDispatcher;
+    private final String token;
+
+    public LeaderLongPollingBot(TelegramBotsLongPollingApplication botsApplication,
+                                UpdateDispatcher updateDispatcher,
+                                @Value("${bot.token}") String token) {
+        this.botsApplication = botsApplication;
+        this.updateDispatcher = updateDispatcher;
+        this.token = token;
+    }
+
+    @Override
+    public void onLeadershipGranted() {
+        try {
+            botsApplication.registerBot(token, updateDispatcher);
+            log.info("Long polling started on this node");
+        } catch (TelegramApiException e) {
+            throw new IllegalStateException("Failed to start long polling", e);
+        }
+    }
+
+    @Override
+    public void onLeadershipRevoked() {
+        try {
+            botsApplication.unregisterBot(token);
+            log.info("Long polling stopped on this node");
+        } catch (TelegramApiException e) {
+            throw new IllegalStateException("Failed to stop long polling", e);
+        }
+    }
+}
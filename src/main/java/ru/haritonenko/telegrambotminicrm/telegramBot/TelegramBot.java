@@ -1,19 +1,24 @@
 package ru.haritonenko.telegrambotminicrm.telegramBot;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.longpolling.interfaces.LongPollingUpdateConsumer;
 import org.telegram.telegrambots.longpolling.starter.SpringLongPollingBot;
-import ru.haritonenko.telegrambotminicrm.consumer.UpdateConsumer;
+import ru.haritonenko.telegrambotminicrm.consumer.UpdateDispatcher;
 
+/**
+ * Long polling on a single node; in cluster mode {@link LeaderLongPollingBot} takes over.
+ */
 @Component
+@ConditionalOnExpression("!${app.cluster.enabled:false} and '${bot.mode:long-polling}' == 'long-polling'")
 public class TelegramBot implements SpringLongPollingBot {
 
-    private final UpdateConsumer updateConsumer;
+    private final UpdateDispatcher updateDispatcher;
     private final String token;
 
-    public TelegramBot(UpdateConsumer updateConsumer, @Value("${bot.token}") String token) {
-        this.updateConsumer = updateConsumer;
+    public TelegramBot(UpdateDispatcher updateDispatcher, @Value("${bot.token}") String token) {
+        this.updateDispatcher = updateDispatcher;
         this.token = token;
     }
 
@@ -24,6 +29,6 @@ public class TelegramBot implements SpringLongPollingBot {
 
     @Override
     public LongPollingUpdateConsumer getUpdatesConsumer() {
-        return updateConsumer;
+        return updateDispatcher;
     }
 }
@@ -0,0 +1,46 @@
+package ru.haritonenko.telegrambotminicrm.telegramBot;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+/**
+ * Points Telegram at this instance's webhook once the web server is up.
+ * Leave bot.webhook.url empty when the webhook is registered externally (e.g. once for a load balancer).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "bot.mode", havingValue = "webhook")
+public class TelegramWebhookRegistrar {
+
+    private final TelegramClient telegramClient;
+
+    @Value("${bot.webhook.url:}")
+    private String url;
+    @Value("${bot.webhook.secret}")
+    private String secret;
+    @Value("${bot.webhook.max-connections:40}")
+    private int maxConnections;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void register() throws TelegramApiException {
+        if (url == null || url.isBlank()) {
+            log.info("bot.webhook.url is empty, skipping setWebhook");
+            return;
+        }
+        telegramClient.execute(SetWebhook.builder()
+                .url(url)
+                .secretToken(secret)
+                .maxConnections(maxConnections)
+                .build());
+        log.info("Telegram webhook registered: url={}", url);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.haritonenko.telegrambotminicrm.util;
+
+/**
+ * Masks personal data before it reaches the logs: phones keep only their last two digits,
+ * names only the first letter of each word, and free chat text is reduced to its command.
+ */
+public final class LogRedactor {
+
+    private static final int VISIBLE_PHONE_DIGITS = 2;
+
+    private LogRedactor() {
+    }
+
+    public static String phone(String phone) {
+        if (phone == null) return null;
+        String digits = PhoneNormalizer.e164Digits(phone);
+        if (digits == null || digits.length() <= VISIBLE_PHONE_DIGITS) return "***";
+        return "***" + digits.substring(digits.length() - VISIBLE_PHONE_DIGITS);
+    }
+
+    public static String name(String name) {
+        if (name == null) return null;
+        StringBuilder out = new StringBuilder(name.length());
+        boolean wordStart = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (!wordStart) out.append(' ');
+                wordStart = true;
+            } else if (wordStart) {
+                out.append(c).append("***");
+                wordStart = false;
+            }
+        }
+        return out.toString().trim();
+    }
+
+    /**
+     * "/by_phone +7 916 123-45-67" becomes "/by_phone <17 chars>"; text that is not a command keeps only its length.
+     */
+    public static String text(String text) {
+        if (text == null) return null;
+        if (!text.startsWith("/")) return "<" + text.length() + " chars>";
+        int end = 0;
+        while (end < text.length() && !Character.isWhitespace(text.charAt(end))) end++;
+        String command = text.substring(0, end);
+        return end == text.length() ? command : command + " <" + (text.length() - end) + " chars>";
+    }
+}
@@ -0,0 +1,25 @@
+package ru.haritonenko.telegrambotminicrm.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets through every n-th call, for log lines that would otherwise be written once per update or lead.
+ * n <= 1 lets everything through.
+ */
+public class LogSampler {
+
+    private final AtomicLong calls = new AtomicLong();
+    private final long every;
+
+    public LogSampler(long every) {
+        this.every = Math.max(1, every);
+    }
+
+    public boolean sample() {
+        return every == 1 || calls.getAndIncrement() % every == 0;
+    }
+
+    public long every() {
+        return every;
+    }
+}
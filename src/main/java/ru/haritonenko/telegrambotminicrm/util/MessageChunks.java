@@ -0,0 +1,36 @@
+package ru.haritonenko.telegrambotminicrm.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs text blocks into as few Telegram messages as possible without splitting a block,
+ * unless a single block is itself longer than the limit.
+ */
+public final class MessageChunks {
+
+    public static final int TELEGRAM_MAX_LENGTH = 4096;
+
+    private MessageChunks() {
+    }
+
+    public static List<String> pack(String header, List<String> blocks, int limit) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder(header);
+        for (String block : blocks) {
+            if (current.length() + block.length() > limit && current.length() > 0) {
+                chunks.add(current.toString());
+                current.setLength(0);
+            }
+            if (block.length() > limit) {
+                for (int i = 0; i < block.length(); i += limit) {
+                    chunks.add(block.substring(i, Math.min(block.length(), i + limit)));
+                }
+                continue;
+            }
+            current.append(block);
+        }
+        if (current.length() > 0) chunks.add(current.toString());
+        return chunks;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.haritonenko.telegrambotminicrm.util;
+
+/**
+ * Phone normalization shared by the bot, lead dedup and the SQL in the V2 migration and the lead import:
+ * keep ASCII digits, turn a leading 8 of an 11-digit number into 7, prefix 10-digit numbers with 7.
+ */
+public final class PhoneNormalizer {
+
+    private PhoneNormalizer() {
+    }
+
+    public static String e164Digits(String phone) {
+        if (phone == null) return null;
+        StringBuilder digits = new StringBuilder(phone.length() + 1);
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') digits.append(c);
+        }
+        if (digits.isEmpty()) return null;
+        if (digits.length() == 11 && digits.charAt(0) == '8') digits.setCharAt(0, '7');
+        else if (digits.length() == 10) digits.insert(0, '7');
+        return digits.toString();
+    }
+
+    /**
+     * Dedup key stored in phone_normalized. Kept as text, so leading zeros stay significant;
+     * a phone without any digits falls back to its raw value without leading and trailing chars up to U+0020
+     * ({@link String#trim()}, {@code [\x01-\x20]} in the SQL). Null when nothing is left.
+     */
+    public static String normalize(String phone) {
+        String digits = e164Digits(phone);
+        if (digits != null || phone == null) return digits;
+        String trimmed = phone.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+}
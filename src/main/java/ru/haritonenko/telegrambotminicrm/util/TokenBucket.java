@@ -0,0 +1,53 @@
+package ru.haritonenko.telegrambotminicrm.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Reservation-style token bucket: callers take a permit immediately and get back
+ * how long they have to wait before using it, so the lock is never held while sleeping.
+ */
+public class TokenBucket {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongSupplier nanoTime;
+    private final double capacity;
+    private final double nanosPerPermit;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double permitsPerSecond, double burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    /**
+     * {@code nanoTime} stands in for {@link System#nanoTime()}, e.g. a manually advanced clock in tests.
+     */
+    public TokenBucket(double permitsPerSecond, double burst, LongSupplier nanoTime) {
+        if (permitsPerSecond <= 0) throw new IllegalArgumentException("permitsPerSecond must be positive");
+        this.capacity = Math.max(1, burst);
+        this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.tokens = capacity;
+        this.nanoTime = nanoTime;
+        this.lastRefill = nanoTime.getAsLong();
+    }
+
+    public long reserve() {
+        lock.lock();
+        try {
+            long now = nanoTime.getAsLong();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) / nanosPerPermit);
+            lastRefill = now;
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens * nanosPerPermit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+}
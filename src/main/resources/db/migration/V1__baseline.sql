@@ -0,0 +1,162 @@
+-- Baseline: the schema as it was maintained by schema.sql before Flyway. Every statement is idempotent, so this
+-- also runs cleanly on databases created by schema.sql (they get baselined at version 0 first).
+-- Later changes go into new V<n>__*.sql files; never edit an applied migration, Flyway checks its checksum.
+
+CREATE SCHEMA IF NOT EXISTS minicrm;
+
+CREATE TABLE IF NOT EXISTS minicrm.tg_users (
+                                               id          BIGSERIAL     PRIMARY KEY,
+                                               chat_id     BIGINT        NOT NULL UNIQUE,
+                                               username    VARCHAR(64),
+                                               phone       VARCHAR(50),
+                                               phone_normalized BIGINT,
+                                               first_name  VARCHAR(150),
+                                               last_name   VARCHAR(150),
+                                               notify      BOOLEAN       NOT NULL DEFAULT FALSE,
+                                               created_at  TIMESTAMPTZ   NOT NULL DEFAULT NOW(),
+                                               updated_at  TIMESTAMPTZ   NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS ix_tg_user_notify ON minicrm.tg_users(notify);
+
+-- District/source subscription filters; SubscriberRegistry keeps them as an in-memory inverted index.
+CREATE TABLE IF NOT EXISTS minicrm.tg_user_filters (
+                                                      chat_id BIGINT       NOT NULL REFERENCES minicrm.tg_users(chat_id) ON DELETE CASCADE,
+                                                      kind    VARCHAR(20)  NOT NULL,
+                                                      value   VARCHAR(100) NOT NULL
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_tg_user_filter ON minicrm.tg_user_filters(chat_id, kind, lower(value));
+
+-- Range-partitioned by month on created_at. Partitions are created and expired by LeadPartitionManager,
+-- which also converts a leads table created before partitioning into this layout on startup.
+CREATE TABLE IF NOT EXISTS minicrm.leads (
+                                            id         BIGSERIAL     NOT NULL,
+                                            fio        VARCHAR(150)  NOT NULL,
+                                            phone      VARCHAR(50)   NOT NULL,
+                                            phone_normalized BIGINT,
+                                            district   VARCHAR(100)  NOT NULL,
+                                            source     VARCHAR(100)  NOT NULL,
+                                            quantity   INTEGER       NOT NULL CHECK (quantity >= 0),
+                                            amount     NUMERIC(12,2) NOT NULL CHECK (amount >= 0),
+                                            created_at TIMESTAMPTZ   NOT NULL DEFAULT NOW(),
+                                            PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX IF NOT EXISTS ix_lead_created_at ON minicrm.leads(created_at);
+CREATE INDEX IF NOT EXISTS ix_lead_source     ON minicrm.leads(source);
+CREATE INDEX IF NOT EXISTS ix_lead_district   ON minicrm.leads(district);
+
+-- Normalized phone: same rules as PhoneNormalizer, stored as the E.164 number without '+'.
+-- Backfill keeps the oldest lead of each phone; later duplicates stay NULL.
+ALTER TABLE minicrm.leads    ADD COLUMN IF NOT EXISTS phone_normalized BIGINT;
+ALTER TABLE minicrm.tg_users ADD COLUMN IF NOT EXISTS phone_normalized BIGINT;
+
+UPDATE minicrm.leads l
+SET phone_normalized = n.normalized
+FROM (
+         SELECT id, normalized, ROW_NUMBER() OVER (PARTITION BY normalized ORDER BY id) AS rn
+         FROM (
+                  SELECT id,
+                         CASE
+                             WHEN digits = '' OR length(digits) > 18 THEN NULL
+                             WHEN length(digits) = 11 AND left(digits, 1) = '8' THEN ('7' || substr(digits, 2))::BIGINT
+                             WHEN length(digits) = 10 THEN ('7' || digits)::BIGINT
+                             ELSE digits::BIGINT
+                             END AS normalized
+                  FROM (SELECT id, regexp_replace(phone, '\D', '', 'g') AS digits
+                        FROM minicrm.leads
+                        WHERE phone_normalized IS NULL) d
+              ) c
+         WHERE normalized IS NOT NULL
+     ) n
+WHERE l.id = n.id
+  AND n.rn = 1
+  AND NOT EXISTS (SELECT 1 FROM minicrm.leads x WHERE x.phone_normalized = n.normalized);
+
+UPDATE minicrm.tg_users u
+SET phone_normalized = c.normalized
+FROM (
+         SELECT id,
+                CASE
+                    WHEN digits = '' OR length(digits) > 18 THEN NULL
+                    WHEN length(digits) = 11 AND left(digits, 1) = '8' THEN ('7' || substr(digits, 2))::BIGINT
+                    WHEN length(digits) = 10 THEN ('7' || digits)::BIGINT
+                    ELSE digits::BIGINT
+                    END AS normalized
+         FROM (SELECT id, regexp_replace(phone, '\D', '', 'g') AS digits
+               FROM minicrm.tg_users
+               WHERE phone IS NOT NULL AND phone_normalized IS NULL) d
+     ) c
+WHERE u.id = c.id
+  AND c.normalized IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS ix_tg_user_phone_normalized ON minicrm.tg_users(phone_normalized);
+
+-- One lead per normalized phone. A unique index on partitioned minicrm.leads would have to include
+-- created_at, so the claim on a phone is kept here and taken in the same statement that inserts the lead.
+CREATE TABLE IF NOT EXISTS minicrm.lead_phones (
+                                                  phone_normalized BIGINT PRIMARY KEY,
+                                                  lead_id          BIGINT NOT NULL
+);
+
+INSERT INTO minicrm.lead_phones (phone_normalized, lead_id)
+SELECT phone_normalized, MIN(id)
+FROM minicrm.leads
+WHERE phone_normalized IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM minicrm.lead_phones)
+GROUP BY phone_normalized;
+
+CREATE TABLE IF NOT EXISTS minicrm.lead_outbox (
+                                                  id           BIGSERIAL     PRIMARY KEY,
+                                                  lead_ids     BIGINT[]      NOT NULL,
+                                                  status       VARCHAR(20)   NOT NULL DEFAULT 'PENDING',
+                                                  attempts     INTEGER       NOT NULL DEFAULT 0,
+                                                  last_error   TEXT,
+                                                  created_at   TIMESTAMPTZ   NOT NULL DEFAULT NOW(),
+                                                  processed_at TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS ix_lead_outbox_status ON minicrm.lead_outbox(status, id);
+
+-- One row per (notification, chat): written when an outbox entry is dispatched, then updated as parts are sent,
+-- so a restarted fan-out resumes with the chats and parts that are still missing.
+CREATE TABLE IF NOT EXISTS minicrm.lead_deliveries (
+                                                      outbox_id       BIGINT       NOT NULL,
+                                                      chat_id         BIGINT       NOT NULL,
+                                                      lead_ids        BIGINT[]     NOT NULL,
+                                                      status          VARCHAR(20)  NOT NULL DEFAULT 'PENDING',
+                                                      parts_sent      INTEGER      NOT NULL DEFAULT 0,
+                                                      attempts        INTEGER      NOT NULL DEFAULT 0,
+                                                      next_attempt_at TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+                                                      last_error      TEXT,
+                                                      updated_at      TIMESTAMPTZ  NOT NULL DEFAULT NOW(),
+                                                      PRIMARY KEY (outbox_id, chat_id)
+);
+
+CREATE INDEX IF NOT EXISTS ix_lead_deliveries_due ON minicrm.lead_deliveries(next_attempt_at) WHERE status = 'PENDING';
+
+CREATE TABLE IF NOT EXISTS minicrm.lead_daily_rollups (
+                                                         day          DATE          NOT NULL,
+                                                         district     VARCHAR(100)  NOT NULL,
+                                                         source       VARCHAR(100)  NOT NULL,
+                                                         lead_count   BIGINT        NOT NULL,
+                                                         quantity_sum BIGINT        NOT NULL,
+                                                         amount_sum   NUMERIC(18,2) NOT NULL,
+                                                         PRIMARY KEY (day, district, source)
+);
+
+-- One-off seed from existing leads; afterwards rollups are maintained by the application on insert.
+INSERT INTO minicrm.lead_daily_rollups (day, district, source, lead_count, quantity_sum, amount_sum)
+SELECT (created_at AT TIME ZONE 'UTC')::date, district, source, COUNT(*), SUM(quantity), SUM(amount)
+FROM minicrm.leads
+WHERE NOT EXISTS (SELECT 1 FROM minicrm.lead_daily_rollups)
+GROUP BY 1, 2, 3;
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS ix_lead_fio_trgm
+    ON minicrm.leads USING gin (lower(fio) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS ix_lead_phone_trgm
+    ON minicrm.leads USING gin ((phone_normalized::text) gin_trgm_ops);
@@ -0,0 +1,50 @@
+-- phone_normalized becomes text: a BIGINT key dropped leading zeros ("0049..." collided with "49...")
+-- and phones without digits or longer than 18 digits got no key at all, so they skipped dedup.
+-- Same rules as PhoneNormalizer.normalize: E.164 digits (ASCII only), or the raw phone without leading and
+-- trailing control characters and spaces (what String.trim() strips) when it has no digits.
+
+ALTER TABLE minicrm.lead_phones ALTER COLUMN phone_normalized TYPE VARCHAR(64) USING phone_normalized::text;
+ALTER TABLE minicrm.leads       ALTER COLUMN phone_normalized TYPE VARCHAR(64) USING phone_normalized::text;
+ALTER TABLE minicrm.tg_users    ALTER COLUMN phone_normalized TYPE VARCHAR(64) USING phone_normalized::text;
+
+UPDATE minicrm.leads l
+SET phone_normalized = n.normalized
+FROM (
+         SELECT id, created_at,
+                CASE
+                    WHEN digits = '' THEN nullif(regexp_replace(phone, '^[\x01-\x20]+|[\x01-\x20]+$', '', 'g'), '')
+                    WHEN length(digits) = 11 AND left(digits, 1) = '8' THEN '7' || substr(digits, 2)
+                    WHEN length(digits) = 10 THEN '7' || digits
+                    ELSE digits
+                    END AS normalized
+         FROM (SELECT id, created_at, phone, regexp_replace(phone, '[^0-9]', '', 'g') AS digits FROM minicrm.leads) d
+     ) n
+WHERE l.id = n.id
+  AND l.created_at = n.created_at
+  AND l.phone_normalized IS DISTINCT FROM n.normalized;
+
+UPDATE minicrm.tg_users u
+SET phone_normalized = c.normalized
+FROM (
+         SELECT id,
+                CASE
+                    WHEN digits = '' THEN nullif(regexp_replace(phone, '^[\x01-\x20]+|[\x01-\x20]+$', '', 'g'), '')
+                    WHEN length(digits) = 11 AND left(digits, 1) = '8' THEN '7' || substr(digits, 2)
+                    WHEN length(digits) = 10 THEN '7' || digits
+                    ELSE digits
+                    END AS normalized
+         FROM (SELECT id, phone, regexp_replace(phone, '[^0-9]', '', 'g') AS digits
+               FROM minicrm.tg_users
+               WHERE phone IS NOT NULL) d
+     ) c
+WHERE u.id = c.id
+  AND u.phone_normalized IS DISTINCT FROM c.normalized;
+
+-- Re-claim every key for its oldest lead; keys that were missing or merged before are now claimed too.
+DELETE FROM minicrm.lead_phones;
+
+INSERT INTO minicrm.lead_phones (phone_normalized, lead_id)
+SELECT phone_normalized, MIN(id)
+FROM minicrm.leads
+WHERE phone_normalized IS NOT NULL
+GROUP BY phone_normalized;
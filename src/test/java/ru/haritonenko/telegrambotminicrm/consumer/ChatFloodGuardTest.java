@@ -0,0 +1,92 @@
+package ru.haritonenko.telegrambotminicrm.consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.haritonenko.telegrambotminicrm.consumer.ChatFloodGuard.Decision;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatFloodGuardTest {
+
+    private final AtomicLong clock = new AtomicLong(Duration.ofSeconds(1).toNanos());
+
+    private ChatFloodGuard guard(double userPerSecond, int userBurst, double adminPerSecond, int adminBurst,
+                                        Duration warnInterval) {
+        return new ChatFloodGuard(new SimpleMeterRegistry(), userPerSecond, userBurst, adminPerSecond, adminBurst,
+                warnInterval, 1000, Duration.ofMinutes(1), clock::get);
+    }
+
+    private int allowedInARow(ChatFloodGuard guard, long chatId, boolean admin) {
+        int allowed = 0;
+        while (guard.check(chatId, admin) == Decision.ALLOW) allowed++;
+        return allowed;
+    }
+
+    @Test
+    void burstIsAllowedThenTheFirstDropWarnsAndTheRestAreSilent() {
+        ChatFloodGuard guard = guard(1, 5, 5, 20, Duration.ofSeconds(10));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(guard.check(1L, false)).isEqualTo(Decision.ALLOW);
+        }
+        assertThat(guard.check(1L, false)).isEqualTo(Decision.DROP_AND_WARN);
+        assertThat(guard.check(1L, false)).isEqualTo(Decision.DROP);
+    }
+
+    @Test
+    void adminsGetTheirOwnLargerBudget() {
+        ChatFloodGuard guard = guard(1, 5, 5, 20, Duration.ofSeconds(10));
+
+        assertThat(allowedInARow(guard, 1L, false)).isEqualTo(5);
+        assertThat(allowedInARow(guard, 2L, true)).isEqualTo(20);
+    }
+
+    @Test
+    void chatsDoNotShareABudget() {
+        ChatFloodGuard guard = guard(1, 5, 5, 20, Duration.ofSeconds(10));
+        allowedInARow(guard, 1L, false);
+
+        assertThat(guard.check(2L, false)).isEqualTo(Decision.ALLOW);
+    }
+
+    @Test
+    void budgetRefillsAtTheConfiguredRate() {
+        ChatFloodGuard guard = guard(20, 2, 20, 2, Duration.ofSeconds(10));
+        assertThat(allowedInARow(guard, 1L, false)).isEqualTo(2);
+
+        clock.addAndGet(Duration.ofMillis(49).toNanos());
+        assertThat(guard.check(1L, false)).isNotEqualTo(Decision.ALLOW);
+
+        clock.addAndGet(Duration.ofMillis(1).toNanos());
+        assertThat(guard.check(1L, false)).isEqualTo(Decision.ALLOW);
+        assertThat(guard.check(1L, false)).isNotEqualTo(Decision.ALLOW);
+    }
+
+    @Test
+    void idleChatIsBackToAFullBurst() {
+        ChatFloodGuard guard = guard(1, 5, 5, 20, Duration.ofSeconds(10));
+        allowedInARow(guard, 1L, false);
+
+        clock.addAndGet(Duration.ofMinutes(5).toNanos());
+
+        assertThat(allowedInARow(guard, 1L, false)).isEqualTo(5);
+    }
+
+    @Test
+    void throttledChatIsWarnedAgainAfterTheWarnInterval() {
+        ChatFloodGuard guard = guard(0.1, 1, 0.1, 1, Duration.ofMillis(50));
+        guard.check(1L, false);
+        assertThat(guard.check(1L, false)).isEqualTo(Decision.DROP_AND_WARN);
+        assertThat(guard.check(1L, false)).isEqualTo(Decision.DROP);
+
+        clock.addAndGet(Duration.ofMillis(49).toNanos());
+        assertThat(guard.check(1L, false)).isEqualTo(Decision.DROP);
+
+        clock.addAndGet(Duration.ofMillis(1).toNanos());
+
+        assertThat(guard.check(1L, false)).isEqualTo(Decision.DROP_AND_WARN);
+    }
+}
@@ -0,0 +1,41 @@
+package ru.haritonenko.telegrambotminicrm.consumer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageCursorTest {
+
+    private static final String PREFIX = "leads_page";
+
+    private static PageCursor parseCallback(String data) {
+        return PageCursor.parse(data.substring((PREFIX + ":").length()));
+    }
+
+    @Test
+    void nextPageStartsAfterTheLastIdAndCountsUp() {
+        String data = PageCursor.next(PREFIX, 42L, 2);
+
+        assertThat(data).isEqualTo("leads_page:n:42:3");
+        assertThat(parseCallback(data)).isEqualTo(new PageCursor(true, 42L, 3));
+    }
+
+    @Test
+    void previousPageEndsBeforeTheFirstIdAndNeverGoesBelowZero() {
+        assertThat(parseCallback(PageCursor.previous(PREFIX, 7L, 3))).isEqualTo(new PageCursor(false, 7L, 2));
+        assertThat(parseCallback(PageCursor.previous(PREFIX, 7L, 0))).isEqualTo(new PageCursor(false, 7L, 0));
+    }
+
+    @Test
+    void malformedValuesFallBackToTheFirstPage() {
+        assertThat(PageCursor.parse("")).isEqualTo(PageCursor.FIRST);
+        assertThat(PageCursor.parse("n:42")).isEqualTo(PageCursor.FIRST);
+        assertThat(PageCursor.parse("n:abc:1")).isEqualTo(PageCursor.FIRST);
+        assertThat(PageCursor.parse("n:1:2:3")).isEqualTo(PageCursor.FIRST);
+    }
+
+    @Test
+    void negativePageNumberIsClampedToZero() {
+        assertThat(PageCursor.parse("p:5:-4")).isEqualTo(new PageCursor(false, 5L, 0));
+    }
+}
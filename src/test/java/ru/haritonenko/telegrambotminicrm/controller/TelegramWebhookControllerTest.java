@@ -0,0 +1,72 @@
+package ru.haritonenko.telegrambotminicrm.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import ru.haritonenko.telegrambotminicrm.consumer.UpdateDispatcher;
+
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Plays the part of the Bot API posting updates to the webhook.
+ */
+@WebMvcTest(controllers = TelegramWebhookController.class, properties = {
+        "bot.mode=webhook",
+        "bot.webhook.path=/telegram/webhook",
+        "bot.webhook.secret=s3cret"
+})
+class TelegramWebhookControllerTest {
+
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final String UPDATE = """
+            {"update_id": 42, "message": {"message_id": 7, "date": 1700000000,
+             "chat": {"id": 1001, "type": "private"}, "text": "/start"}}
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UpdateDispatcher updateDispatcher;
+
+    @Test
+    void updateWithValidSecretIsDispatched() throws Exception {
+        mockMvc.perform(post("/telegram/webhook")
+                        .header(SECRET_HEADER, "s3cret")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE))
+                .andExpect(status().isOk());
+
+        verify(updateDispatcher).dispatch(argThat((Update u) ->
+                u.getUpdateId() == 42 && "/start".equals(u.getMessage().getText())));
+    }
+
+    @Test
+    void updateWithWrongSecretIsRejected() throws Exception {
+        mockMvc.perform(post("/telegram/webhook")
+                        .header(SECRET_HEADER, "guess")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(updateDispatcher);
+    }
+
+    @Test
+    void updateWithoutSecretIsRejected() throws Exception {
+        mockMvc.perform(post("/telegram/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(UPDATE))
+                .andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(updateDispatcher);
+    }
+}
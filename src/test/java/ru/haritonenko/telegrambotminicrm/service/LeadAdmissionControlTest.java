@@ -0,0 +1,113 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import ru.haritonenko.telegrambotminicrm.model.OutboxStatus;
+import ru.haritonenko.telegrambotminicrm.repository.LeadDeliveryRepository;
+import ru.haritonenko.telegrambotminicrm.repository.LeadOutboxRepository;
+import ru.haritonenko.telegrambotminicrm.service.LeadAdmissionControl.Rejection;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LeadAdmissionControlTest {
+
+    private static final int MAX_CONCURRENT = 2;
+    private static final int POOL_SIZE = 10;
+
+    private final LeadOutboxRepository outboxRepository = mock(LeadOutboxRepository.class);
+    private final LeadDeliveryRepository deliveryRepository = mock(LeadDeliveryRepository.class);
+    private final HikariDataSource hikari = mock(HikariDataSource.class);
+    private final HikariPoolMXBean pool = mock(HikariPoolMXBean.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        when(hikari.getHikariPoolMXBean()).thenReturn(pool);
+        when(hikari.getMaximumPoolSize()).thenReturn(POOL_SIZE);
+    }
+
+    private LeadAdmissionControl control(DataSource dataSource) {
+        return new LeadAdmissionControl(outboxRepository, deliveryRepository, meterRegistry, dataSource,
+                MAX_CONCURRENT, 0.9, 5, 1000, 1, 10);
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.counter("leads.admission.rejected", "reason", reason).count();
+    }
+
+    @Test
+    void requestsBeyondTheInFlightLimitGet503UntilOneIsReleased() {
+        LeadAdmissionControl control = control(hikari);
+
+        assertThat(control.tryAdmit()).isNull();
+        assertThat(control.tryAdmit()).isNull();
+        Rejection rejection = control.tryAdmit();
+
+        assertThat(rejection.status()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejection.retryAfterSeconds()).isEqualTo(1);
+        assertThat(rejected("in_flight")).isEqualTo(1);
+
+        control.release();
+        assertThat(control.tryAdmit()).isNull();
+    }
+
+    @Test
+    void poolWaitersAboveTheLimitGet503AndFreeTheirSlot() {
+        LeadAdmissionControl control = control(hikari);
+        when(pool.getThreadsAwaitingConnection()).thenReturn(6);
+
+        for (int i = 0; i <= MAX_CONCURRENT; i++) {
+            assertThat(control.tryAdmit().status()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        assertThat(rejected("pool")).isEqualTo(MAX_CONCURRENT + 1);
+
+        when(pool.getThreadsAwaitingConnection()).thenReturn(5);
+        assertThat(control.tryAdmit()).isNull();
+    }
+
+    @Test
+    void nearlyExhaustedPoolGets503() {
+        LeadAdmissionControl control = control(hikari);
+        when(pool.getActiveConnections()).thenReturn(9);
+
+        assertThat(control.tryAdmit().status()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        when(pool.getActiveConnections()).thenReturn(8);
+        assertThat(control.tryAdmit()).isNull();
+    }
+
+    @Test
+    void outboxAndDueDeliveriesTogetherFillTheBacklogAndGet429() {
+        LeadAdmissionControl control = control(hikari);
+        when(outboxRepository.countByStatus(OutboxStatus.PENDING)).thenReturn(400L);
+        when(deliveryRepository.countDue()).thenReturn(599L);
+        control.refreshBacklog();
+        assertThat(control.tryAdmit()).isNull();
+        control.release();
+
+        when(deliveryRepository.countDue()).thenReturn(600L);
+        control.refreshBacklog();
+        Rejection rejection = control.tryAdmit();
+
+        assertThat(rejection.status()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejection.retryAfterSeconds()).isEqualTo(10);
+        assertThat(rejected("backlog")).isEqualTo(1);
+        assertThat(control.tryAdmit().status()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected("in_flight")).isZero();
+    }
+
+    @Test
+    void poolChecksAreSkippedWithoutHikari() {
+        LeadAdmissionControl control = control(mock(DataSource.class));
+
+        assertThat(control.tryAdmit()).isNull();
+    }
+}
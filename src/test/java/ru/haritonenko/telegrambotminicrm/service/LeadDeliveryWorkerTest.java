@@ -0,0 +1,232 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.TaskScheduler;
+import ru.haritonenko.telegrambotminicrm.metrics.BotMetrics;
+import ru.haritonenko.telegrambotminicrm.model.DeliveryStatus;
+import ru.haritonenko.telegrambotminicrm.model.Lead;
+import ru.haritonenko.telegrambotminicrm.model.LeadDelivery;
+import ru.haritonenko.telegrambotminicrm.repository.LeadDeliveryRepository;
+import ru.haritonenko.telegrambotminicrm.repository.LeadDeliveryRepository.Update;
+import ru.haritonenko.telegrambotminicrm.repository.LeadRepository;
+import ru.haritonenko.telegrambotminicrm.service.BroadcastEngine.DeliveryListener;
+import ru.haritonenko.telegrambotminicrm.service.BroadcastEngine.Outcome;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LeadDeliveryWorkerTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration BASE = Duration.ofSeconds(5);
+    private static final Duration MAX = Duration.ofMinutes(30);
+
+    private final LeadDeliveryRepository deliveryRepository = mock(LeadDeliveryRepository.class);
+    private final LeadRepository leadRepository = mock(LeadRepository.class);
+    private final BroadcastEngine broadcastEngine = mock(BroadcastEngine.class);
+    private final UserService userService = mock(UserService.class);
+    private final TaskScheduler taskScheduler = mock(TaskScheduler.class);
+    private LeadDeliveryWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        doReturn(mock(ScheduledFuture.class))
+                .when(taskScheduler).scheduleAtFixedRate(any(Runnable.class), any(Instant.class), any(Duration.class));
+        worker = new LeadDeliveryWorker(deliveryRepository, leadRepository, broadcastEngine, userService,
+                mock(BotMetrics.class), taskScheduler, 100, 200, MAX_ATTEMPTS, BASE, MAX, Duration.ofDays(7),
+                Duration.ofSeconds(30));
+    }
+
+    private static Lead lead(long id, String fio) {
+        return Lead.builder().id(id).fio(fio).phone("+7900000000" + id).district("Центральный").source("Сайт")
+                .quantity(1).amount(BigDecimal.TEN).build();
+    }
+
+    private void given(List<LeadDelivery> due, Lead... leads) {
+        when(deliveryRepository.claimDue(anyInt(), any())).thenReturn(due);
+        when(leadRepository.findAllById(any())).thenReturn(List.of(leads));
+    }
+
+    /**
+     * Answers every chat of every fan-out with the outcome mapped to it, recording which chats got which part.
+     */
+    private List<long[]> answer(Map<Long, Outcome> outcomes) {
+        List<long[]> fanOuts = new ArrayList<>();
+        doAnswer(inv -> {
+            long[] chatIds = inv.getArgument(0);
+            DeliveryListener listener = inv.getArgument(2);
+            fanOuts.add(chatIds);
+            for (long chatId : chatIds) {
+                Outcome outcome = outcomes.getOrDefault(chatId, Outcome.SENT);
+                listener.onResult(chatId, outcome, outcome == Outcome.SENT ? null : outcome.name());
+            }
+            return null;
+        }).when(broadcastEngine).broadcast(any(), anyString(), any());
+        return fanOuts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Update> recordedUpdates() {
+        ArgumentCaptor<List<Update>> captor = ArgumentCaptor.forClass(List.class);
+        verify(deliveryRepository, atLeastOnce()).applyAll(captor.capture());
+        return captor.getAllValues().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toMap(u -> u.delivery().chatId(), Function.identity(), (a, b) -> b));
+    }
+
+    @Test
+    void outcomesMapToLedgerStatuses() {
+        Long[] leadIds = {1L};
+        given(List.of(
+                new LeadDelivery(10, 1, leadIds, 0, 0),
+                new LeadDelivery(10, 2, leadIds, 0, 0),
+                new LeadDelivery(10, 3, leadIds, 0, 0),
+                new LeadDelivery(10, 4, leadIds, 0, 0),
+                new LeadDelivery(10, 5, leadIds, 0, MAX_ATTEMPTS - 1)), lead(1, "Иванов Иван"));
+        answer(Map.of(2L, Outcome.RETRYABLE, 3L, Outcome.BLOCKED, 4L, Outcome.FAILED, 5L, Outcome.RETRYABLE));
+
+        OffsetDateTime before = OffsetDateTime.now();
+        worker.deliverDue();
+        Map<Long, Update> updates = recordedUpdates();
+
+        assertThat(updates.get(1L).status()).isEqualTo(DeliveryStatus.SENT);
+        assertThat(updates.get(1L).partsSent()).isEqualTo(1);
+
+        Update retry = updates.get(2L);
+        assertThat(retry.status()).isEqualTo(DeliveryStatus.PENDING);
+        assertThat(retry.attempts()).isEqualTo(1);
+        assertThat(retry.nextAttemptAt()).isAfter(before.plus(BASE.dividedBy(2)).minusSeconds(1));
+
+        assertThat(updates.get(3L).status()).isEqualTo(DeliveryStatus.BLOCKED);
+        assertThat(updates.get(4L).status()).isEqualTo(DeliveryStatus.FAILED);
+
+        Update givenUp = updates.get(5L);
+        assertThat(givenUp.status()).isEqualTo(DeliveryStatus.FAILED);
+        assertThat(givenUp.attempts()).isEqualTo(MAX_ATTEMPTS);
+    }
+
+    @Test
+    void blockedChatsAreUnsubscribedAndTheirQueuedDeliveriesBlocked() {
+        Long[] leadIds = {1L};
+        given(List.of(new LeadDelivery(10, 1, leadIds, 0, 0), new LeadDelivery(10, 3, leadIds, 0, 0)),
+                lead(1, "Иванов Иван"));
+        answer(Map.of(3L, Outcome.BLOCKED));
+
+        worker.deliverDue();
+
+        verify(userService).unsubscribeAll(Set.of(3L));
+        verify(deliveryRepository).blockPending(Set.of(3L));
+    }
+
+    @Test
+    void nothingIsUnsubscribedWhenEveryChatAccepts() {
+        given(List.of(new LeadDelivery(10, 1, new Long[]{1L}, 0, 0)), lead(1, "Иванов Иван"));
+        answer(Map.of());
+
+        worker.deliverDue();
+
+        verify(userService, never()).unsubscribeAll(any());
+        verify(deliveryRepository, never()).blockPending(any());
+    }
+
+    @Test
+    void deliveryResumesAtThePartsAlreadySent() {
+        Long[] leadIds = {1L, 2L};
+        given(List.of(new LeadDelivery(10, 1, leadIds, 0, 0), new LeadDelivery(10, 2, leadIds, 1, 0)),
+                lead(1, "А".repeat(3000)), lead(2, "Б".repeat(3000)));
+        List<long[]> fanOuts = answer(Map.of());
+
+        worker.deliverDue();
+
+        assertThat(fanOuts).hasSize(2);
+        assertThat(fanOuts.get(0)).containsExactly(1L);
+        assertThat(fanOuts.get(1)).containsExactlyInAnyOrder(1L, 2L);
+        ArgumentCaptor<String> texts = ArgumentCaptor.forClass(String.class);
+        verify(broadcastEngine, times(2)).broadcast(any(), texts.capture(), any());
+        assertThat(texts.getAllValues().get(1)).contains("Б".repeat(3000)).doesNotContain("А".repeat(3000));
+
+        Map<Long, Update> updates = recordedUpdates();
+        assertThat(updates.get(1L).status()).isEqualTo(DeliveryStatus.SENT);
+        assertThat(updates.get(1L).partsSent()).isEqualTo(2);
+        assertThat(updates.get(2L).status()).isEqualTo(DeliveryStatus.SENT);
+        assertThat(updates.get(2L).partsSent()).isEqualTo(2);
+    }
+
+    @Test
+    void retryAfterAPartKeepsTheProgressMadeSoFar() {
+        Long[] leadIds = {1L, 2L};
+        given(List.of(new LeadDelivery(10, 1, leadIds, 1, 0)), lead(1, "А".repeat(3000)), lead(2, "Б".repeat(3000)));
+        answer(Map.of(1L, Outcome.RETRYABLE));
+
+        worker.deliverDue();
+
+        Update update = recordedUpdates().get(1L);
+        assertThat(update.status()).isEqualTo(DeliveryStatus.PENDING);
+        assertThat(update.partsSent()).isEqualTo(1);
+    }
+
+    @Test
+    void deliveriesOfDeletedLeadsFailWithoutSending() {
+        given(List.of(new LeadDelivery(10, 1, new Long[]{1L}, 0, 0)));
+
+        worker.deliverDue();
+
+        verify(broadcastEngine, never()).broadcast(any(), anyString(), any());
+        assertThat(recordedUpdates().get(1L).status()).isEqualTo(DeliveryStatus.FAILED);
+    }
+
+    @Test
+    void leaseRenewalIsCancelledWhenTheRunEnds() {
+        ScheduledFuture<?> renewal = mock(ScheduledFuture.class);
+        doReturn(renewal)
+                .when(taskScheduler).scheduleAtFixedRate(any(Runnable.class), any(Instant.class), any(Duration.class));
+        given(List.of(new LeadDelivery(10, 1, new Long[]{1L}, 0, 0)), lead(1, "Иванов Иван"));
+        answer(Map.of());
+
+        worker.deliverDue();
+
+        verify(taskScheduler).scheduleAtFixedRate(any(Runnable.class), any(Instant.class), any(Duration.class));
+        verify(renewal).cancel(false);
+        verify(deliveryRepository, never()).extendLease(anyList(), any());
+    }
+
+    @Test
+    void backoffDoublesPerAttemptWithinAJitteredUpperHalf() {
+        for (int attempts = 1; attempts <= 4; attempts++) {
+            Duration ceiling = BASE.multipliedBy(1L << (attempts - 1));
+            assertThat(LeadDeliveryWorker.backoff(BASE, MAX, attempts))
+                    .isBetween(ceiling.dividedBy(2), ceiling);
+        }
+    }
+
+    @Test
+    void backoffIsCappedAtMax() {
+        assertThat(LeadDeliveryWorker.backoff(BASE, MAX, 15)).isBetween(MAX.dividedBy(2), MAX);
+        assertThat(LeadDeliveryWorker.backoff(BASE, MAX, 1000)).isBetween(MAX.dividedBy(2), MAX);
+    }
+}
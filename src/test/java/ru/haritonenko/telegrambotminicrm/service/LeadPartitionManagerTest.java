@@ -0,0 +1,156 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class LeadPartitionManagerTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void resetSchema() {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP SCHEMA IF EXISTS minicrm CASCADE");
+    }
+
+    /**
+     * Same settings as spring.flyway in application.yaml.
+     */
+    private void migrate() {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .schemas("minicrm")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+    }
+
+    private LeadPartitionManager manager(int retentionMonths) {
+        return new LeadPartitionManager(jdbc, new DataSourceTransactionManager(dataSource), 2, retentionMonths, true, 120);
+    }
+
+    private List<String> partitions() {
+        return jdbc.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'minicrm.leads'::regclass ORDER BY c.relname
+                """, String.class);
+    }
+
+    private static String partition(YearMonth month) {
+        return "leads_p" + month.format(SUFFIX);
+    }
+
+    private void insertLead(String phone, String phoneNormalized, OffsetDateTime createdAt) {
+        jdbc.update("""
+                WITH lead AS (
+                    INSERT INTO minicrm.leads (fio, phone, phone_normalized, district, source, quantity, amount, created_at)
+                    VALUES ('Иванов Иван', ?, ?, 'Центр', 'site', 1, 100.00, ?)
+                    RETURNING id, phone_normalized
+                )
+                INSERT INTO minicrm.lead_phones (phone_normalized, lead_id) SELECT phone_normalized, id FROM lead
+                """, phone, phoneNormalized, createdAt);
+    }
+
+    @Test
+    void createsCurrentAndFuturePartitionsOnFreshSchema() {
+        migrate();
+
+        manager(0).maintain();
+
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        assertThat(partitions()).containsExactly(
+                partition(now), partition(now.plusMonths(1)), partition(now.plusMonths(2)));
+
+        insertLead("+7 916 000-00-01", "79160000001", OffsetDateTime.now(ZoneOffset.UTC));
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM minicrm." + partition(now), Long.class)).isEqualTo(1L);
+    }
+
+    @Test
+    void convertsExistingTableIntoLegacyPartitionKeepingRowsAndIds() {
+        jdbc.execute("CREATE SCHEMA minicrm");
+        jdbc.execute("""
+                CREATE TABLE minicrm.leads (
+                    id         BIGSERIAL     PRIMARY KEY,
+                    fio        VARCHAR(150)  NOT NULL,
+                    phone      VARCHAR(50)   NOT NULL,
+                    district   VARCHAR(100)  NOT NULL,
+                    source     VARCHAR(100)  NOT NULL,
+                    quantity   INTEGER       NOT NULL CHECK (quantity >= 0),
+                    amount     NUMERIC(12,2) NOT NULL CHECK (amount >= 0),
+                    created_at TIMESTAMPTZ   NOT NULL DEFAULT NOW()
+                )
+                """);
+        jdbc.execute("CREATE INDEX ix_lead_created_at ON minicrm.leads(created_at)");
+        jdbc.update("INSERT INTO minicrm.leads (fio, phone, district, source, quantity, amount, created_at) VALUES "
+                + "('Старый', '89160000002', 'Центр', 'site', 1, 10, NOW() - INTERVAL '2 years'), "
+                + "('Новый', '89160000003', 'Центр', 'site', 2, 20, NOW())");
+
+        migrate();
+        manager(0).maintain();
+
+        assertThat(jdbc.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = 'minicrm.leads'::regclass", String.class)).isEqualTo("p");
+        assertThat(partitions()).contains("leads_legacy");
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM minicrm.leads", Long.class)).isEqualTo(2L);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM minicrm.lead_phones", Long.class)).isEqualTo(2L);
+
+        long nextId = jdbc.queryForObject("SELECT nextval(pg_get_serial_sequence('minicrm.leads', 'id'))", Long.class);
+        assertThat(nextId).isGreaterThan(2L);
+    }
+
+    @Test
+    void recentLeadsQueryScansOnlyRecentPartitions() {
+        migrate();
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        LeadPartitionManager manager = manager(0);
+        manager.ensurePartitions(now.minusMonths(12), now);
+
+        OffsetDateTime since = now.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+        String plan = String.join("\n", jdbc.queryForList(
+                "EXPLAIN SELECT * FROM minicrm.leads WHERE created_at >= ? AND id > 0 ORDER BY id LIMIT 20",
+                String.class, since));
+
+        assertThat(plan).contains(partition(now));
+        assertThat(plan).doesNotContain(partition(now.minusMonths(1)), partition(now.minusMonths(6)));
+    }
+
+    @Test
+    void expiredPartitionsAreDroppedAndTheirPhonesReleased() {
+        migrate();
+        YearMonth now = YearMonth.now(ZoneOffset.UTC);
+        LeadPartitionManager manager = manager(3);
+        manager.ensurePartitions(now.minusMonths(6), now);
+        insertLead("89160000004", "79160000004", now.minusMonths(5).atDay(10).atStartOfDay().atOffset(ZoneOffset.UTC));
+
+        manager.maintain();
+
+        assertThat(partitions()).doesNotContain(partition(now.minusMonths(5)), partition(now.minusMonths(4)));
+        assertThat(partitions()).contains(partition(now.minusMonths(3)), partition(now));
+        assertThat(jdbc.queryForObject(
+                "SELECT count(*) FROM minicrm.lead_phones WHERE phone_normalized = '79160000004'", Long.class)).isZero();
+    }
+}
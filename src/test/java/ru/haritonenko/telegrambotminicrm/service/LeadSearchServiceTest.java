@@ -0,0 +1,33 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import org.junit.jupiter.api.Test;
+import ru.haritonenko.telegrambotminicrm.service.LeadSearchService.Query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeadSearchServiceTest {
+
+    @Test
+    void phoneFragmentKeepsItsRawDigits() {
+        assertThat(LeadSearchService.parse("1612345678")).contains(new Query(null, "1612345678"));
+        assertThat(LeadSearchService.parse("123-45")).contains(new Query(null, "12345"));
+        assertThat(LeadSearchService.parse("9161234567")).contains(new Query(null, "9161234567"));
+    }
+
+    @Test
+    void trunkFormatNumberIsNormalizedToItsStoredKey() {
+        assertThat(LeadSearchService.parse("8 (916) 123-45-67")).contains(new Query(null, "79161234567"));
+    }
+
+    @Test
+    void queryWithLettersSearchesFio() {
+        assertThat(LeadSearchService.parse("  Иван ")).contains(new Query("Иван", null));
+    }
+
+    @Test
+    void tooShortQueriesAreRejected() {
+        assertThat(LeadSearchService.parse("12")).isEmpty();
+        assertThat(LeadSearchService.parse("+-1 2")).isEmpty();
+        assertThat(LeadSearchService.parse(null)).isEmpty();
+    }
+}
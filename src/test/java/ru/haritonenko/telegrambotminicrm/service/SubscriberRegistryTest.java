@@ -0,0 +1,94 @@
+package ru.haritonenko.telegrambotminicrm.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.haritonenko.telegrambotminicrm.model.SubscriptionFilter;
+import ru.haritonenko.telegrambotminicrm.repository.SubscriptionFilterRepository;
+import ru.haritonenko.telegrambotminicrm.repository.UserRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static ru.haritonenko.telegrambotminicrm.model.SubscriptionFilterKind.DISTRICT;
+import static ru.haritonenko.telegrambotminicrm.model.SubscriptionFilterKind.SOURCE;
+
+class SubscriberRegistryTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SubscriptionFilterRepository filterRepository = mock(SubscriptionFilterRepository.class);
+    private SubscriberRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findNotifyChatIds()).thenReturn(List.of(3L, 1L, 2L, 4L));
+        when(filterRepository.findAll()).thenReturn(List.of(
+                new SubscriptionFilter(1L, DISTRICT, "Центральный"),
+                new SubscriptionFilter(1L, DISTRICT, "Северный"),
+                new SubscriptionFilter(2L, SOURCE, "Сайт"),
+                new SubscriptionFilter(3L, DISTRICT, "Центральный"),
+                new SubscriptionFilter(3L, SOURCE, "Авито")));
+        registry = new SubscriberRegistry(userRepository, filterRepository, new SimpleMeterRegistry());
+        registry.reload();
+    }
+
+    @Test
+    void chatWithoutFiltersGetsEveryLead() {
+        assertThat(registry.recipients("Южный", "Звонок")).containsExactly(4L);
+    }
+
+    @Test
+    void filtersOfOneKindAreOred() {
+        assertThat(registry.recipients("Центральный", "Звонок")).containsExactly(1L, 4L);
+        assertThat(registry.recipients("Северный", "Звонок")).containsExactly(1L, 4L);
+    }
+
+    @Test
+    void filtersOfDifferentKindsAreAnded() {
+        assertThat(registry.recipients("Центральный", "Авито")).containsExactly(1L, 3L, 4L);
+        assertThat(registry.recipients("Северный", "Авито")).containsExactly(1L, 4L);
+        assertThat(registry.recipients("Южный", "Сайт")).containsExactly(2L, 4L);
+    }
+
+    @Test
+    void valuesMatchIgnoringCaseAndWhitespace() {
+        assertThat(registry.recipients("  центральный ", "АВИТО")).containsExactly(1L, 3L, 4L);
+        registry.setFilters(4L, List.of(new SubscriptionFilter(4L, DISTRICT, "Новые   Черёмушки")));
+
+        assertThat(registry.recipients("новые черёмушки", "Звонок")).containsExactly(4L);
+    }
+
+    @Test
+    void setFiltersRebuildsTheIndexAndEmptyFiltersMatchEverythingAgain() {
+        registry.setFilters(4L, List.of(new SubscriptionFilter(4L, SOURCE, "Сайт")));
+        assertThat(registry.recipients("Южный", "Звонок")).isEmpty();
+        assertThat(registry.filters(4L)).hasSize(1);
+
+        registry.setFilters(1L, List.of());
+        assertThat(registry.recipients("Южный", "Звонок")).containsExactly(1L);
+        assertThat(registry.filters(1L)).isEmpty();
+    }
+
+    @Test
+    void removedChatsNoLongerReceiveAndKeepOthersIntact() {
+        registry.removeAll(List.of(1L, 4L, 99L));
+
+        assertThat(registry.snapshot()).containsExactly(2L, 3L);
+        assertThat(registry.recipients("Центральный", "Авито")).containsExactly(3L);
+        assertThat(registry.recipients("Южный", "Сайт")).containsExactly(2L);
+    }
+
+    @Test
+    void addedChatIsKeptSortedAndUsesItsKnownFilters() {
+        registry.remove(1L);
+        assertThat(registry.recipients("Северный", "Звонок")).containsExactly(4L);
+
+        registry.add(1L);
+        registry.add(0L);
+
+        assertThat(registry.snapshot()).containsExactly(0L, 1L, 2L, 3L, 4L);
+        assertThat(registry.recipients("Северный", "Звонок")).containsExactly(0L, 1L, 4L);
+    }
+}
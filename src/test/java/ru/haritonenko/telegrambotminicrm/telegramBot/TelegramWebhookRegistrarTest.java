@@ -0,0 +1,83 @@
+package ru.haritonenko.telegrambotminicrm.telegramBot;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.haritonenko.telegrambotminicrm.config.TelegramConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the registrar against a local fake Bot API reached through bot.api-url.
+ */
+class TelegramWebhookRegistrarTest {
+
+    private static final String TOKEN = "123456:test-token";
+
+    private record Call(String path, String body) {
+    }
+
+    private final List<Call> calls = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    @BeforeEach
+    void startFakeBotApi() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            calls.add(new Call(exchange.getRequestURI().getPath(), body));
+            byte[] response = "{\"ok\":true,\"result\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopFakeBotApi() {
+        server.stop(0);
+    }
+
+    private TelegramWebhookRegistrar registrar(String url) {
+        String apiUrl = "http://localhost:" + server.getAddress().getPort();
+        TelegramWebhookRegistrar registrar = new TelegramWebhookRegistrar(
+                new TelegramConfig().telegramClient(new OkHttpClient(), TOKEN, apiUrl));
+        ReflectionTestUtils.setField(registrar, "url", url);
+        ReflectionTestUtils.setField(registrar, "secret", "s3cret");
+        ReflectionTestUtils.setField(registrar, "maxConnections", 40);
+        return registrar;
+    }
+
+    @Test
+    void registersWebhookWithSecretAndConnectionLimit() throws Exception {
+        registrar("https://crm.example/telegram/webhook").register();
+
+        assertThat(calls).hasSize(1);
+        Call call = calls.getFirst();
+        assertThat(call.path()).isEqualTo("/bot" + TOKEN + "/setWebhook");
+        assertThat(call.body())
+                .contains("https://crm.example/telegram/webhook")
+                .contains("s3cret")
+                .contains("40");
+    }
+
+    @Test
+    void skipsRegistrationWhenUrlIsEmpty() throws Exception {
+        registrar("").register();
+
+        assertThat(calls).isEmpty();
+    }
+}
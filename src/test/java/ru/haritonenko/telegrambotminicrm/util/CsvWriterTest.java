@@ -0,0 +1,40 @@
+package ru.haritonenko.telegrambotminicrm.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvWriterTest {
+
+    private static String write(String... fields) throws IOException {
+        StringWriter out = new StringWriter();
+        try (CsvWriter csv = new CsvWriter(out)) {
+            csv.writeRow(fields);
+        }
+        return out.toString();
+    }
+
+    @Test
+    void plainFieldsAreWrittenAsIsAndNullIsEmpty() throws IOException {
+        assertThat(write("1", "Иванов Иван", null, "100.00")).isEqualTo("1,Иванов Иван,,100.00\r\n");
+    }
+
+    @Test
+    void fieldsWithSeparatorsAreQuotedAndQuotesDoubled() throws IOException {
+        assertThat(write("a,b", "say \"hi\"", "two\nlines")).isEqualTo("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\r\n");
+    }
+
+    @Test
+    void formulaLikeFieldsGetLeadingApostrophe() throws IOException {
+        assertThat(write("=HYPERLINK(\"x\")", "+7 916", "-1", "@SUM(A1)", "a=b"))
+                .isEqualTo("\"'=HYPERLINK(\"\"x\"\")\",'+7 916,'-1,'@SUM(A1),a=b\r\n");
+    }
+
+    @Test
+    void tabAndCarriageReturnPrefixesAreNeutralizedToo() throws IOException {
+        assertThat(write("\tcmd", "\rcmd")).isEqualTo("'\tcmd,\"'\rcmd\"\r\n");
+    }
+}
@@ -0,0 +1,35 @@
+package ru.haritonenko.telegrambotminicrm.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogRedactorTest {
+
+    @Test
+    void phoneKeepsOnlyItsLastTwoDigits() {
+        assertThat(LogRedactor.phone("+7 (916) 123-45-67")).isEqualTo("***67");
+        assertThat(LogRedactor.phone("12")).isEqualTo("***");
+        assertThat(LogRedactor.phone("нет")).isEqualTo("***");
+        assertThat(LogRedactor.phone(null)).isNull();
+    }
+
+    @Test
+    void nameKeepsFirstLetterOfEachWord() {
+        assertThat(LogRedactor.name("Иванов Иван Иванович")).isEqualTo("И*** И*** И***");
+        assertThat(LogRedactor.name("  Петров \t Пётр ")).isEqualTo("П*** П***");
+        assertThat(LogRedactor.name(null)).isNull();
+    }
+
+    @Test
+    void commandKeepsItsNameAndOnlyTheLengthOfItsArguments() {
+        assertThat(LogRedactor.text("/by_phone +7 916 123-45-67")).isEqualTo("/by_phone <17 chars>");
+        assertThat(LogRedactor.text("/start")).isEqualTo("/start");
+    }
+
+    @Test
+    void freeTextKeepsOnlyItsLength() {
+        assertThat(LogRedactor.text("Иванов Иван")).isEqualTo("<11 chars>");
+        assertThat(LogRedactor.text(null)).isNull();
+    }
+}
@@ -0,0 +1,34 @@
+package ru.haritonenko.telegrambotminicrm.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageChunksTest {
+
+    @Test
+    void blocksArePackedUpToTheLimitWithHeaderInFirstChunkOnly() {
+        assertThat(MessageChunks.pack("H:", List.of("aaa", "bbb", "ccc"), 8))
+                .containsExactly("H:aaabbb", "ccc");
+    }
+
+    @Test
+    void blocksAreNeverSplitWhenTheyFit() {
+        assertThat(MessageChunks.pack("", List.of("aaa", "bbbbb", "cc"), 6))
+                .containsExactly("aaa", "bbbbb", "cc");
+    }
+
+    @Test
+    void oversizedBlockIsCutIntoLimitSizedPieces() {
+        assertThat(MessageChunks.pack("", List.of("ab", "0123456789", "cd"), 4))
+                .containsExactly("ab", "0123", "4567", "89", "cd");
+    }
+
+    @Test
+    void headerAloneIsOneChunkAndNothingIsNoChunks() {
+        assertThat(MessageChunks.pack("H", List.of(), 10)).containsExactly("H");
+        assertThat(MessageChunks.pack("", List.of(), 10)).isEmpty();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.haritonenko.telegrambotminicrm.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PhoneNormalizerTest {
+
+    @Test
+    void russianFormatsMapToOneKey() {
+        assertThat(PhoneNormalizer.normalize("+7 (916) 123-45-67")).isEqualTo("79161234567");
+        assertThat(PhoneNormalizer.normalize("8 916 123 45 67")).isEqualTo("79161234567");
+        assertThat(PhoneNormalizer.normalize("9161234567")).isEqualTo("79161234567");
+    }
+
+    @Test
+    void otherLengthsKeepTheirDigitsIncludingLeadingZeros() {
+        assertThat(PhoneNormalizer.normalize("+44 20 7946 0958")).isEqualTo("442079460958");
+        assertThat(PhoneNormalizer.normalize("00123")).isEqualTo("00123");
+        assertThat(PhoneNormalizer.normalize("0123")).isNotEqualTo(PhoneNormalizer.normalize("123"));
+    }
+
+    @Test
+    void elevenDigitsNotStartingWithEightAreKept() {
+        assertThat(PhoneNormalizer.normalize("59161234567")).isEqualTo("59161234567");
+    }
+
+    @Test
+    void phoneWithoutDigitsFallsBackToTrimmedText() {
+        assertThat(PhoneNormalizer.e164Digits(" нет ")).isNull();
+        assertThat(PhoneNormalizer.normalize(" нет ")).isEqualTo("нет");
+    }
+
+    @Test
+    void fallbackStripsControlCharsLikeTheSqlSide() {
+        assertThat(PhoneNormalizer.normalize("нет\t")).isEqualTo("нет");
+        assertThat(PhoneNormalizer.normalize("\r\nнет \n")).isEqualTo("нет");
+        assertThat(PhoneNormalizer.normalize("\t\n")).isNull();
+    }
+
+    @Test
+    void onlyAsciiDigitsCount() {
+        assertThat(PhoneNormalizer.e164Digits("٧٩١٦")).isNull();
+        assertThat(PhoneNormalizer.normalize("٧٩١٦")).isEqualTo("٧٩١٦");
+    }
+
+    @Test
+    void blankOrNullHasNoKey() {
+        assertThat(PhoneNormalizer.normalize(null)).isNull();
+        assertThat(PhoneNormalizer.normalize("   ")).isNull();
+    }
+}
@@ -0,0 +1,65 @@
+package ru.haritonenko.telegrambotminicrm.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000 * MILLI);
+
+    @Test
+    void burstIsFreeThenReservationsQueueOnePermitApart() {
+        TokenBucket bucket = new TokenBucket(10, 3, clock::get);
+
+        assertThat(bucket.reserve()).isZero();
+        assertThat(bucket.reserve()).isZero();
+        assertThat(bucket.reserve()).isZero();
+        assertThat(bucket.reserve()).isEqualTo(100 * MILLI);
+        assertThat(bucket.reserve()).isEqualTo(200 * MILLI);
+    }
+
+    @Test
+    void permitsRefillAtTheConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(10, 1, clock::get);
+        bucket.reserve();
+        assertThat(bucket.reserve()).isEqualTo(100 * MILLI);
+
+        clock.addAndGet(150 * MILLI);
+
+        assertThat(bucket.reserve()).isEqualTo(50 * MILLI);
+    }
+
+    @Test
+    void refillIsCappedAtBurst() {
+        TokenBucket bucket = new TokenBucket(100, 2, clock::get);
+        bucket.reserve();
+        bucket.reserve();
+
+        clock.addAndGet(1_000 * MILLI);
+
+        assertThat(bucket.reserve()).isZero();
+        assertThat(bucket.reserve()).isZero();
+        assertThat(bucket.reserve()).isEqualTo(10 * MILLI);
+    }
+
+    @Test
+    void acquireDoesNotWaitWithinTheBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 2, clock::get);
+
+        bucket.acquire();
+
+        assertThat(bucket.reserve()).isZero();
+    }
+
+    @Test
+    void rateMustBePositive() {
+        assertThatThrownBy(() -> new TokenBucket(0, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}